@@ -0,0 +1,352 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url.common;
+
+import com.tylerkindy.url.common.CodePoints.Range;
+import com.tylerkindy.url.common.CodePoints.Single;
+import com.tylerkindy.url.common.MappingRow.WithMapping;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, two-stage lookup table over an IDNA mapping table.
+ *
+ * <p>Every code point resolves to a packed {@code int} entry holding its {@link Status} and the
+ * offset and length of its mapping within a shared arena of code points. Code points in the
+ * Latin-1 range are looked up directly; everything else goes through a block index into a table
+ * of deduplicated blocks.
+ *
+ * <p>Tables are built from {@link MappingRow}s at development time and stored in a compact binary
+ * form (see {@link #write(OutputStream)}), which {@link #read(InputStream)} loads with a single
+ * bulk read.
+ */
+public final class IdnaMappingTable {
+  private static final int BLOCK_SHIFT = 5;
+  private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+  private static final int LATIN_1_SIZE = 0x100;
+  private static final int CODE_POINT_LIMIT = Character.MAX_CODE_POINT + 1;
+
+  private static final int STATUS_BITS = 3;
+  private static final int STATUS_MASK = (1 << STATUS_BITS) - 1;
+  private static final int LENGTH_BITS = 5;
+  private static final int LENGTH_MASK = (1 << LENGTH_BITS) - 1;
+  private static final int OFFSET_SHIFT = STATUS_BITS + LENGTH_BITS;
+  private static final int MAX_OFFSET = (1 << (Integer.SIZE - OFFSET_SHIFT)) - 1;
+
+  private static final int MAGIC = 0x49444E41; // "IDNA"
+  private static final int FORMAT_VERSION = 1;
+
+  private static final Status[] STATUSES = Status.values();
+
+  private final int[] latin1;
+  private final char[] blockIndex;
+  private final int[] blocks;
+  private final int[] mappings;
+
+  private IdnaMappingTable(int[] latin1, char[] blockIndex, int[] blocks, int[] mappings) {
+    this.latin1 = latin1;
+    this.blockIndex = blockIndex;
+    this.blocks = blocks;
+    this.mappings = mappings;
+  }
+
+  public static IdnaMappingTable fromRows(List<? extends MappingRow> rows) {
+    Map<List<Integer>, Integer> arenaOffsets = arenaOffsets(rows);
+    List<int[]> ranges = mergeRanges(rows, arenaOffsets);
+
+    int[] latin1 = new int[LATIN_1_SIZE];
+    char[] blockIndex = new char[CODE_POINT_LIMIT >>> BLOCK_SHIFT];
+    Map<Block, Character> blockOffsets = new HashMap<>();
+    int[] blocks = new int[BLOCK_SIZE * 64];
+    int blocksLength = 0;
+
+    int rangeIndex = 0;
+    int[] block = new int[BLOCK_SIZE];
+    for (int blockNumber = 0; blockNumber < blockIndex.length; blockNumber++) {
+      int blockStart = blockNumber << BLOCK_SHIFT;
+      for (int i = 0; i < BLOCK_SIZE; i++) {
+        int codePoint = blockStart + i;
+        while (ranges.get(rangeIndex)[1] < codePoint) {
+          rangeIndex++;
+        }
+        block[i] = ranges.get(rangeIndex)[2];
+        if (codePoint < LATIN_1_SIZE) {
+          latin1[codePoint] = block[i];
+        }
+      }
+
+      Block key = new Block(block.clone());
+      Character offset = blockOffsets.get(key);
+      if (offset == null) {
+        if (blocksLength + BLOCK_SIZE > blocks.length) {
+          blocks = Arrays.copyOf(blocks, blocks.length * 2);
+        }
+        if (blocksLength > Character.MAX_VALUE) {
+          throw new IllegalArgumentException("Too many distinct blocks in mapping table");
+        }
+        offset = (char) blocksLength;
+        System.arraycopy(block, 0, blocks, blocksLength, BLOCK_SIZE);
+        blocksLength += BLOCK_SIZE;
+        blockOffsets.put(key, offset);
+      }
+      blockIndex[blockNumber] = offset;
+    }
+
+    return new IdnaMappingTable(
+        latin1,
+        blockIndex,
+        Arrays.copyOf(blocks, blocksLength),
+        buildArena(arenaOffsets)
+    );
+  }
+
+  public static IdnaMappingTable read(InputStream in) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(in.readAllBytes());
+
+    try {
+      if (buffer.getInt() != MAGIC) {
+        throw new IOException("Not an IDNA mapping table");
+      }
+      int formatVersion = buffer.getInt();
+      if (formatVersion != FORMAT_VERSION) {
+        throw new IOException("Unsupported IDNA mapping table format " + formatVersion);
+      }
+
+      int[] latin1 = readInts(buffer);
+
+      char[] blockIndex = new char[CODE_POINT_LIMIT >>> BLOCK_SHIFT];
+      int runCount = buffer.getInt();
+      int blockNumber = 0;
+      for (int i = 0; i < runCount; i++) {
+        int runLength = buffer.getChar();
+        char offset = buffer.getChar();
+        for (int j = 0; j < runLength; j++) {
+          blockIndex[blockNumber++] = offset;
+        }
+      }
+      if (blockNumber != blockIndex.length || latin1.length != LATIN_1_SIZE) {
+        throw new IOException("Truncated IDNA mapping table");
+      }
+
+      int[] blocks = readInts(buffer);
+      int[] mappings = readInts(buffer);
+
+      return new IdnaMappingTable(latin1, blockIndex, blocks, mappings);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      throw new IOException("Truncated IDNA mapping table", e);
+    }
+  }
+
+  private static int[] readInts(ByteBuffer buffer) {
+    int[] ints = new int[buffer.getInt()];
+    buffer.asIntBuffer().get(ints);
+    buffer.position(buffer.position() + ints.length * Integer.BYTES);
+    return ints;
+  }
+
+  /**
+   * Writes this table in the binary form understood by {@link #read(InputStream)}. The block
+   * index is run-length encoded, since long stretches of code points share a block.
+   */
+  public void write(OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeInt(FORMAT_VERSION);
+
+    writeInts(data, latin1);
+
+    List<char[]> runs = new ArrayList<>();
+    for (int i = 0; i < blockIndex.length; ) {
+      int runEnd = i + 1;
+      while (
+          runEnd < blockIndex.length &&
+              blockIndex[runEnd] == blockIndex[i] &&
+              runEnd - i < Character.MAX_VALUE
+      ) {
+        runEnd++;
+      }
+      runs.add(new char[] {(char) (runEnd - i), blockIndex[i]});
+      i = runEnd;
+    }
+    data.writeInt(runs.size());
+    for (char[] run : runs) {
+      data.writeChar(run[0]);
+      data.writeChar(run[1]);
+    }
+
+    writeInts(data, blocks);
+    writeInts(data, mappings);
+    data.flush();
+  }
+
+  private static void writeInts(DataOutputStream data, int[] ints) throws IOException {
+    data.writeInt(ints.length);
+    for (int i : ints) {
+      data.writeInt(i);
+    }
+  }
+
+  /**
+   * @return the packed entry for the given code point, to be unpacked with {@link #status(int)},
+   *     {@link #mappingOffset(int)} and {@link #mappingLength(int)}
+   */
+  public int lookup(int codePoint) {
+    if (codePoint >= 0 && codePoint < LATIN_1_SIZE) {
+      return latin1[codePoint];
+    }
+    if (codePoint < 0 || codePoint >= CODE_POINT_LIMIT) {
+      throw new IllegalArgumentException(
+          "No mapping found for code point 0x" + Integer.toHexString(codePoint)
+      );
+    }
+    return blocks[blockIndex[codePoint >>> BLOCK_SHIFT] + (codePoint & BLOCK_MASK)];
+  }
+
+  public Status getStatus(int codePoint) {
+    return status(lookup(codePoint));
+  }
+
+  public void appendMapping(int entry, StringBuilder output) {
+    int offset = mappingOffset(entry);
+    int end = offset + mappingLength(entry);
+    for (int i = offset; i < end; i++) {
+      output.appendCodePoint(mappings[i]);
+    }
+  }
+
+  public static Status status(int entry) {
+    return STATUSES[entry & STATUS_MASK];
+  }
+
+  public static int mappingOffset(int entry) {
+    return entry >>> OFFSET_SHIFT;
+  }
+
+  public static int mappingLength(int entry) {
+    return (entry >>> STATUS_BITS) & LENGTH_MASK;
+  }
+
+  private static int pack(Status status, int offset, int length) {
+    if (length > LENGTH_MASK) {
+      throw new IllegalArgumentException("Mapping too long: " + length);
+    }
+    if (offset > MAX_OFFSET) {
+      throw new IllegalArgumentException("Mapping arena too large: " + offset);
+    }
+    return (offset << OFFSET_SHIFT) | (length << STATUS_BITS) | status.ordinal();
+  }
+
+  /**
+   * Packs every row into its entry, merging adjacent rows whose entries are identical.
+   *
+   * @return ranges of {@code [low, high, entry]}, sorted and covering every code point
+   */
+  private static List<int[]> mergeRanges(
+      List<? extends MappingRow> rows,
+      Map<List<Integer>, Integer> arenaOffsets
+  ) {
+    List<int[]> unmerged = new ArrayList<>(rows.size());
+    for (MappingRow row : rows) {
+      int entry;
+      if (row instanceof WithMapping mapped) {
+        entry = pack(row.status(), arenaOffsets.get(mapped.mapping()), mapped.mapping().size());
+      } else {
+        entry = pack(row.status(), 0, 0);
+      }
+
+      CodePoints codePoints = row.codePoints();
+      if (codePoints instanceof Single s) {
+        unmerged.add(new int[] {s.codePoint(), s.codePoint(), entry});
+      } else if (codePoints instanceof Range r) {
+        unmerged.add(new int[] {r.lowCodePoint(), r.highCodePoint(), entry});
+      } else {
+        throw new IllegalStateException("Unknown CodePoints class: " + codePoints);
+      }
+    }
+    unmerged.sort(Comparator.comparingInt(range -> range[0]));
+
+    List<int[]> merged = new ArrayList<>(unmerged.size());
+    int expectedLow = 0;
+    for (int[] range : unmerged) {
+      if (range[0] != expectedLow) {
+        throw new IllegalArgumentException(
+            "Mapping table does not cover code point 0x" + Integer.toHexString(expectedLow)
+        );
+      }
+      expectedLow = range[1] + 1;
+
+      int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+      if (last != null && last[2] == range[2]) {
+        last[1] = range[1];
+      } else {
+        merged.add(range.clone());
+      }
+    }
+    if (expectedLow != CODE_POINT_LIMIT) {
+      throw new IllegalArgumentException(
+          "Mapping table does not cover code point 0x" + Integer.toHexString(expectedLow)
+      );
+    }
+
+    return merged;
+  }
+
+  private static Map<List<Integer>, Integer> arenaOffsets(List<? extends MappingRow> rows) {
+    Map<List<Integer>, Integer> offsets = new HashMap<>();
+    int nextOffset = 0;
+    for (MappingRow row : rows) {
+      if (row instanceof WithMapping mapped && !offsets.containsKey(mapped.mapping())) {
+        offsets.put(mapped.mapping(), nextOffset);
+        nextOffset += mapped.mapping().size();
+      }
+    }
+    return offsets;
+  }
+
+  private static int[] buildArena(Map<List<Integer>, Integer> offsets) {
+    int[] arena = new int[offsets.keySet().stream().mapToInt(List::size).sum()];
+    offsets.forEach((mapping, offset) -> {
+      for (int i = 0; i < mapping.size(); i++) {
+        arena[offset + i] = mapping.get(i);
+      }
+    });
+    return arena;
+  }
+
+  private record Block(int[] entries) {
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Block b && Arrays.equals(entries, b.entries);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(entries);
+    }
+  }
+}
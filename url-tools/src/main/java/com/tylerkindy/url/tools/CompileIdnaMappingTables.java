@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url.tools;
+
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.tylerkindy.url.common.IdnaMappingTable;
+import com.tylerkindy.url.common.MappingRow;
+import com.tylerkindy.url.common.UnicodeVersion;
+import com.tylerkindy.url.common.UnicodeVersions;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Compiles the shrunk CSV mapping tables written by {@link DownloadIdnaMappingTables} into the
+ * binary form that the parser loads at runtime. Only the binary tables are packaged; the CSVs stay
+ * with the tests, which check the binary tables against them.
+ */
+public class CompileIdnaMappingTables {
+
+  private static final Path CSV_DIRECTORY =
+      Path.of("url/src/test/resources/com/tylerkindy/url/idnamap");
+  private static final Path BINARY_DIRECTORY =
+      Path.of("url/src/main/resources/com/tylerkindy/url/idnamap");
+
+  private final CsvMapper csvMapper;
+
+  private CompileIdnaMappingTables(CsvMapper csvMapper) {
+    this.csvMapper = csvMapper;
+  }
+
+  public static void main(String[] args) {
+    new CompileIdnaMappingTables(new CsvMapper()).run();
+  }
+
+  private void run() {
+    for (UnicodeVersion version : UnicodeVersions.getAllSupportedUnicodeVersions()) {
+      compile(version);
+    }
+  }
+
+  private void compile(UnicodeVersion version) {
+    Path csvPath = CSV_DIRECTORY.resolve(version + ".csv");
+    Path binaryPath = BINARY_DIRECTORY.resolve(version + ".bin");
+
+    System.out.println("Compiling mapping table for " + version);
+
+    List<MappingRow> rows;
+    try (InputStream in = Files.newInputStream(csvPath)) {
+      CsvSchema schema = csvMapper.schemaFor(MappingRow.class).withHeader();
+      rows = csvMapper.readerFor(MappingRow.class).with(schema).<MappingRow>readValues(in)
+          .readAll();
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading " + csvPath, e);
+    }
+
+    IdnaMappingTable table = IdnaMappingTable.fromRows(rows);
+
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(binaryPath))) {
+      table.write(out);
+    } catch (IOException e) {
+      throw new RuntimeException("Error writing " + binaryPath, e);
+    }
+
+    System.out.println("Wrote " + binaryPath);
+  }
+}
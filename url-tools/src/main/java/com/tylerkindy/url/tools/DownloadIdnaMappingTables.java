@@ -138,7 +138,7 @@ public class DownloadIdnaMappingTables {
   }
 
   private Path buildResourcePath(UnicodeVersion version) {
-    return Path.of("url/src/main/resources/com/tylerkindy/url/idnamap", version + ".csv");
+    return Path.of("url/src/test/resources/com/tylerkindy/url/idnamap", version + ".csv");
   }
 
   private List<InputRow> readInput(InputStream inputStream) {
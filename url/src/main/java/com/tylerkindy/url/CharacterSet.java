@@ -16,18 +16,27 @@
 
 package com.tylerkindy.url;
 
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.BoundType;
 import com.google.common.collect.Range;
-import java.util.Set;
-import java.util.function.Predicate;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
 
-final class CharacterSet implements Predicate<Integer> {
-  private final Set<Range<Integer>> ranges;
-  private final Set<Integer> extras;
+/**
+ * A set of code points, such as one of the {@link PercentEncoder} percent-encode sets. It's
+ * compiled into a bitmap of the Latin-1 code points, which is what almost every lookup hits, and a
+ * sorted array of the ranges above them.
+ */
+public final class CharacterSet implements IntPredicate {
+  private static final int LATIN_1_SIZE = 0x100;
+
+  /** One bit per Latin-1 code point. */
+  private final long[] latin1;
+  /** Disjoint, sorted {@code [first, last]} pairs, all above Latin-1. */
+  private final int[] ranges;
 
-  private CharacterSet(Set<Range<Integer>> ranges, Set<Integer> extras) {
+  private CharacterSet(long[] latin1, int[] ranges) {
+    this.latin1 = latin1;
     this.ranges = ranges;
-    this.extras = extras;
   }
 
   public static Builder builder() {
@@ -35,31 +44,80 @@ final class CharacterSet implements Predicate<Integer> {
   }
 
   @Override
-  public boolean test(Integer codePoint) {
+  public boolean test(int codePoint) {
     return contains(codePoint);
   }
 
   public boolean contains(int codePoint) {
-    return extras.contains(codePoint) || ranges.stream().anyMatch(range -> range.contains(codePoint));
+    if (codePoint >>> 8 == 0) {
+      return (latin1[codePoint >>> 6] & (1L << codePoint)) != 0;
+    }
+    return containsAboveLatin1(codePoint);
   }
 
-  static final class Builder {
-    private final ImmutableSet.Builder<Range<Integer>> ranges;
-    private final ImmutableSet.Builder<Integer> extras;
+  private boolean containsAboveLatin1(int codePoint) {
+    // find the last range starting at or before the code point
+    int low = 0;
+    int high = ranges.length / 2 - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (ranges[mid * 2] <= codePoint) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return high >= 0 && codePoint <= ranges[high * 2 + 1];
+  }
 
-    Builder() {
-      this.ranges = ImmutableSet.builder();
-      this.extras = ImmutableSet.builder();
+  public static final class Builder {
+    private final long[] latin1;
+    private int[] ranges;
+    private int rangesSize;
+
+    private Builder() {
+      this.latin1 = new long[LATIN_1_SIZE / Long.SIZE];
+      this.ranges = new int[8];
+      this.rangesSize = 0;
     }
 
     public Builder addAll(CharacterSet other) {
-      ranges.addAll(other.ranges);
-      extras.addAll(other.extras);
+      for (int i = 0; i < latin1.length; i++) {
+        latin1[i] |= other.latin1[i];
+      }
+      for (int i = 0; i < other.ranges.length; i += 2) {
+        addRange(other.ranges[i], other.ranges[i + 1]);
+      }
       return this;
     }
 
     public Builder addRange(Range<Integer> range) {
-      ranges.add(range);
+      int first = !range.hasLowerBound() ? 0 :
+          range.lowerBoundType() == BoundType.CLOSED ? range.lowerEndpoint() : range.lowerEndpoint() + 1;
+      int last = !range.hasUpperBound() ? Character.MAX_CODE_POINT :
+          range.upperBoundType() == BoundType.CLOSED ? range.upperEndpoint() : range.upperEndpoint() - 1;
+      return addRange(first, last);
+    }
+
+    /**
+     * Adds the code points in {@code [first, last]}.
+     */
+    public Builder addRange(int first, int last) {
+      first = Math.max(first, 0);
+      last = Math.min(last, Character.MAX_CODE_POINT);
+
+      for (; first <= last && first < LATIN_1_SIZE; first++) {
+        latin1[first >>> 6] |= 1L << first;
+      }
+      if (first > last) {
+        return this;
+      }
+
+      if (rangesSize == ranges.length) {
+        ranges = Arrays.copyOf(ranges, ranges.length * 2);
+      }
+      ranges[rangesSize++] = first;
+      ranges[rangesSize++] = last;
       return this;
     }
 
@@ -75,12 +133,33 @@ final class CharacterSet implements Predicate<Integer> {
     }
 
     public Builder addCodePoint(int c) {
-      extras.add(c);
-      return this;
+      return addRange(c, c);
     }
 
     public CharacterSet build() {
-      return new CharacterSet(ranges.build(), extras.build());
+      return new CharacterSet(latin1.clone(), mergeRanges());
+    }
+
+    private int[] mergeRanges() {
+      long[] sorted = new long[rangesSize / 2];
+      for (int i = 0; i < sorted.length; i++) {
+        sorted[i] = ((long) ranges[i * 2] << 32) | ranges[i * 2 + 1];
+      }
+      Arrays.sort(sorted);
+
+      int[] merged = new int[rangesSize];
+      int size = 0;
+      for (long range : sorted) {
+        int first = (int) (range >>> 32);
+        int last = (int) range;
+        if (size > 0 && first <= merged[size - 1] + 1) {
+          merged[size - 1] = Math.max(merged[size - 1], last);
+        } else {
+          merged[size++] = first;
+          merged[size++] = last;
+        }
+      }
+      return Arrays.copyOf(merged, size);
     }
   }
 }
@@ -85,13 +85,10 @@ final class CharacterUtils {
     return c == '\t' || c == '\r' || c == '\n';
   }
 
-  public static boolean isWindowsDriveLetter(String s) {
-    if (s.length() != 2 || s.codePointCount(0, 2) != 2) {
-      return false;
-    }
-
-    return isAsciiAlpha(s.codePointAt(0)) &&
-        (s.codePointAt(1) == ':' || s.codePointAt(1) == '|');
+  public static boolean isWindowsDriveLetter(CharSequence s) {
+    return s.length() == 2 &&
+        isAsciiAlpha(s.charAt(0)) &&
+        (s.charAt(1) == ':' || s.charAt(1) == '|');
   }
 
   public static boolean isNormalizedWindowsDriveLetter(String s) {
@@ -101,4 +98,17 @@ final class CharacterUtils {
   public static boolean isUrlCodePoint(int codePoint) {
     return URL_CODE_POINTS.contains(codePoint);
   }
+
+  /**
+   * @return a table of the ASCII code points that can be copied straight to a component as-is
+   * without any validation error: the URL code points that aren't in the percent-encode set or
+   * among the terminators
+   */
+  public static boolean[] asciiCopyTable(CharacterSet percentEncodeSet, String terminators) {
+    boolean[] table = new boolean[0x80];
+    for (int c = 0; c < 0x80; c++) {
+      table[c] = isUrlCodePoint(c) && !percentEncodeSet.contains(c) && terminators.indexOf(c) < 0;
+    }
+    return table;
+  }
 }
@@ -1,32 +0,0 @@
-/*
- * Copyright 2024 Tyler Kindy.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *    http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package com.tylerkindy.url;
-
-import java.util.Iterator;
-
-final class CodePointIterable implements Iterable<Integer> {
-  private final String value;
-
-  public CodePointIterable(String value) {
-    this.value = value;
-  }
-
-  @Override
-  public Iterator<Integer> iterator() {
-    return value.codePoints().iterator();
-  }
-}
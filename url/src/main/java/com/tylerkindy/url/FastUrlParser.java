@@ -0,0 +1,287 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static com.tylerkindy.url.CharacterUtils.asciiCopyTable;
+import static com.tylerkindy.url.CharacterUtils.isAsciiAlphanumeric;
+import static com.tylerkindy.url.CharacterUtils.isAsciiDigit;
+import static com.tylerkindy.url.CharacterUtils.isAsciiHexDigit;
+
+import com.tylerkindy.url.Host.Domain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * An optimistic single-pass parser for the common shape of URL:
+ * {@code scheme://host[:port][/path][?query][#fragment]}, with a special scheme other than
+ * {@code file}, an ASCII domain, and nothing that needs percent-encoding or normalizing or that
+ * would be a validation error.
+ *
+ * <p>Whenever the input strays from that shape, the fast path gives up and the caller falls back
+ * to the full {@link UrlParser} state machine, so anything it does return is identical to what
+ * the state machine would have produced.
+ */
+final class FastUrlParser {
+  private static final List<String> SCHEMES = List.of("http", "https", "ws", "wss", "ftp");
+
+  private static final boolean[] PATH_SAFE = asciiCopyTable(PercentEncoder.PATH, "");
+  private static final boolean[] QUERY_SAFE = asciiCopyTable(PercentEncoder.SPECIAL_QUERY, "");
+  private static final boolean[] FRAGMENT_SAFE = asciiCopyTable(PercentEncoder.FRAGMENT, "");
+
+  private FastUrlParser() {
+    throw new RuntimeException();
+  }
+
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  static Optional<Url> tryParse(String input, Optional<HostCache> hostCache) {
+    return tryParse(input, 0, input.length(), hostCache);
+  }
+
+  /**
+   * Tries to parse the chars in {@code [start, end)} of the input.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  static Optional<Url> tryParse(CharSequence input, int start, int end, Optional<HostCache> hostCache) {
+    return tryParse(input, start, end, hostCache, null);
+  }
+
+  /**
+   * Tries to parse the chars in {@code [start, end)} of the input, serializing the URL with the
+   * given serializer, or with a new one if it's null. The input is checked in full before anything
+   * is serialized, and components are copied from it by range, so a successful parse only
+   * allocates the host and the {@link Url} itself.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  static Optional<Url> tryParse(
+      CharSequence input,
+      int start,
+      int end,
+      Optional<HostCache> hostCache,
+      UrlSerializer serializer
+  ) {
+    String scheme = matchScheme(input, start, end);
+    if (scheme == null) {
+      return Optional.empty();
+    }
+
+    int hostStart = start + scheme.length() + "://".length();
+    int i = hostStart;
+
+    int lastLabelStart = hostStart;
+    boolean hasUppercase = false;
+    while (i < end) {
+      char c = input.charAt(i);
+      if (c == '.') {
+        if (i == lastLabelStart) {
+          // empty labels are left to the full parser
+          return Optional.empty();
+        }
+        lastLabelStart = i + 1;
+      } else if (isAsciiAlphanumeric(c) || c == '-') {
+        if (i == lastLabelStart && regionMatchesIgnoreCase(input, i, end, "xn--")) {
+          return Optional.empty();
+        }
+        hasUppercase |= c >= 'A' && c <= 'Z';
+      } else if (c == ':' || c == '/' || c == '?' || c == '#') {
+        break;
+      } else {
+        return Optional.empty();
+      }
+      i++;
+    }
+
+    int hostEnd = i;
+    if (hostEnd == hostStart) {
+      return Optional.empty();
+    }
+    if (lastLabelStart == hostEnd) {
+      // a single trailing dot doesn't count towards the last label
+      lastLabelStart = hostEnd - 1;
+      while (lastLabelStart > hostStart && input.charAt(lastLabelStart - 1) != '.') {
+        lastLabelStart--;
+      }
+    }
+    if (isAsciiDigit(input.charAt(lastLabelStart))) {
+      // might be an IPv4 address
+      return Optional.empty();
+    }
+
+    int port = -1;
+    if (i < end && input.charAt(i) == ':') {
+      i++;
+      int portStart = i;
+      while (i < end && isAsciiDigit(input.charAt(i))) {
+        i++;
+      }
+      if (i - portStart > 5 || (i < end && input.charAt(i) != '/' && input.charAt(i) != '?' && input.charAt(i) != '#')) {
+        return Optional.empty();
+      }
+      if (i > portStart) {
+        int portInt = Integer.parseInt(input, portStart, i, 10);
+        if (portInt > Character.MAX_VALUE) {
+          return Optional.empty();
+        }
+
+        Character defaultPort = UrlParser.DEFAULT_PORTS.get(scheme);
+        port = defaultPort != null && defaultPort == portInt ? -1 : portInt;
+      }
+    }
+
+    int pathStart = i;
+    if (i < end && input.charAt(i) == '/') {
+      while (true) {
+        int segmentStart = i + 1;
+        int segmentEnd = scan(input, segmentStart, end, PATH_SAFE, "/?#");
+        if (segmentEnd < 0 || isPossibleDotSegment(input, segmentStart, segmentEnd)) {
+          return Optional.empty();
+        }
+
+        i = segmentEnd;
+        if (i == end || input.charAt(i) != '/') {
+          break;
+        }
+      }
+    }
+    int pathEnd = i;
+
+    int queryStart = -1;
+    if (i < end && input.charAt(i) == '?') {
+      queryStart = i + 1;
+      i = scan(input, queryStart, end, QUERY_SAFE, "#");
+      if (i < 0) {
+        return Optional.empty();
+      }
+    }
+    int queryEnd = i;
+
+    // only a fragment can be left
+    int fragmentStart = i < end ? i + 1 : -1;
+    if (fragmentStart >= 0 && scan(input, fragmentStart, end, FRAGMENT_SAFE, "") < 0) {
+      return Optional.empty();
+    }
+
+    String hostString = substring(input, hostStart, hostEnd);
+    Host host;
+    if (hostCache.isPresent()) {
+      // keyed on the raw host, as the state machine looks it up, so both paths share entries
+      Optional<Host> cachedHost = hostCache.get().parseHost(hostString, false, new ArrayList<>());
+      if (cachedHost.isEmpty()) {
+        return Optional.empty();
+      }
+      host = cachedHost.get();
+    } else {
+      host = new Domain(hasUppercase ? hostString.toLowerCase(Locale.ROOT) : hostString);
+    }
+
+    if (serializer == null) {
+      // the href is the input, save for a path of "/" where there was none
+      serializer = new UrlSerializer(end - start + 1);
+    } else {
+      serializer.reset();
+    }
+    serializer.visitScheme(scheme);
+    serializer.visitHost(host);
+    if (port >= 0) {
+      serializer.visitPort(port);
+    }
+    if (pathEnd > pathStart) {
+      serializer.visitSerializedPath(input, pathStart, pathEnd);
+    } else {
+      serializer.visitPathSegment("");
+    }
+    if (queryStart >= 0) {
+      serializer.visitQuery(input, queryStart, queryEnd);
+    }
+    if (fragmentStart >= 0) {
+      serializer.visitFragment(input, fragmentStart, end);
+    }
+    return Optional.of(new Url(serializer));
+  }
+
+  private static String matchScheme(CharSequence input, int start, int end) {
+    for (String scheme : SCHEMES) {
+      if (
+          regionMatches(input, start, end, scheme) &&
+              regionMatches(input, start + scheme.length(), end, "://")
+      ) {
+        return scheme;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Scans from {@code start} to the end of the current component, which ends at any of the
+   * terminators or the end of the input.
+   *
+   * @return the index the component ends at, or -1 if it contains anything the fast path can't
+   * copy verbatim, or anything the full parser would report a validation error for
+   */
+  private static int scan(CharSequence input, int start, int end, boolean[] safe, String terminators) {
+    for (int i = start; i < end; i++) {
+      char c = input.charAt(i);
+      if (terminators.indexOf(c) >= 0) {
+        return i;
+      }
+      if (c == '%') {
+        if (end - i < 3 || !isAsciiHexDigit(input.charAt(i + 1)) || !isAsciiHexDigit(input.charAt(i + 2))) {
+          return -1;
+        }
+      } else if (c >= safe.length || !safe[c]) {
+        return -1;
+      }
+    }
+    return end;
+  }
+
+  private static boolean isPossibleDotSegment(CharSequence input, int start, int end) {
+    return start < end && (
+        input.charAt(start) == '.' ||
+            regionMatchesIgnoreCase(input, start, end, "%2e")
+    );
+  }
+
+  private static boolean regionMatches(CharSequence input, int start, int end, String other) {
+    if (end - start < other.length()) {
+      return false;
+    }
+    for (int i = 0; i < other.length(); i++) {
+      if (input.charAt(start + i) != other.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean regionMatchesIgnoreCase(CharSequence input, int start, int end, String lowercase) {
+    if (end - start < lowercase.length()) {
+      return false;
+    }
+    for (int i = 0; i < lowercase.length(); i++) {
+      if (Character.toLowerCase(input.charAt(start + i)) != lowercase.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String substring(CharSequence input, int start, int end) {
+    return input instanceof String s ? s.substring(start, end) : input.subSequence(start, end).toString();
+  }
+}
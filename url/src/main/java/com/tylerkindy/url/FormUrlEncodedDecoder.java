@@ -0,0 +1,221 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * A streaming application/x-www-form-urlencoded parser. It reads the body a chunk at a time,
+ * reporting each decoded name-value pair as soon as it ends, so it only ever holds one chunk and
+ * one pair in memory no matter how big the body is. Escapes and UTF-8 sequences split across
+ * chunks are put back together.
+ *
+ * @see <a href="https://url.spec.whatwg.org/#urlencoded-parsing">application/x-www-form-urlencoded parsing</a>
+ */
+public final class FormUrlEncodedDecoder {
+  private static final FormUrlEncodedDecoder DEFAULT = builder().build();
+
+  private final int chunkSize;
+  private final int maximumPairSize;
+
+  private FormUrlEncodedDecoder(Builder builder) {
+    this.chunkSize = builder.chunkSize;
+    this.maximumPairSize = builder.maximumPairSize;
+  }
+
+  public static FormUrlEncodedDecoder defaults() {
+    return DEFAULT;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Reads the channel to its end, reporting each pair to the consumer in order.
+   *
+   * @throws IOException if reading fails, or a pair is bigger than the maximum pair size
+   */
+  public void decode(ReadableByteChannel channel, BiConsumer<String, String> consumer) throws IOException {
+    Pair pair = new Pair(maximumPairSize);
+    ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+    while (channel.read(chunk) >= 0) {
+      pair.accept(chunk.array(), chunk.position(), consumer);
+      chunk.clear();
+    }
+    pair.finish(consumer);
+  }
+
+  /**
+   * Reads the stream to its end, reporting each pair to the consumer in order.
+   *
+   * @throws IOException if reading fails, or a pair is bigger than the maximum pair size
+   */
+  public void decode(InputStream input, BiConsumer<String, String> consumer) throws IOException {
+    Pair pair = new Pair(maximumPairSize);
+    byte[] chunk = new byte[chunkSize];
+    int read;
+    while ((read = input.read(chunk)) >= 0) {
+      pair.accept(chunk, read, consumer);
+    }
+    pair.finish(consumer);
+  }
+
+  /**
+   * The pair being decoded, carried over from one chunk to the next.
+   */
+  private static final class Pair {
+    private final int maximumSize;
+    /** The decoded bytes of the name, followed by those of the value. */
+    private byte[] bytes;
+    private int length;
+    /** Where the name ends, or -1 if there hasn't been an {@code =} yet. */
+    private int nameEnd;
+    /** Whether any of the pair has been read, as empty pairs are skipped. */
+    private boolean started;
+    /** How many chars of a {@code %} escape have been read so far. */
+    private int escapeLength;
+    private byte firstHexDigit;
+
+    Pair(int maximumSize) {
+      this.maximumSize = maximumSize;
+      this.bytes = new byte[Math.min(maximumSize, 64)];
+      this.nameEnd = -1;
+    }
+
+    void accept(byte[] chunk, int chunkLength, BiConsumer<String, String> consumer) throws IOException {
+      for (int i = 0; i < chunkLength; i++) {
+        accept(chunk[i], consumer);
+      }
+    }
+
+    private void accept(byte b, BiConsumer<String, String> consumer) throws IOException {
+      if (escapeLength > 0) {
+        if (PercentEncoder.hexValue(b) >= 0) {
+          if (escapeLength == 1) {
+            firstHexDigit = b;
+            escapeLength = 2;
+          } else {
+            escapeLength = 0;
+            add((byte) ((PercentEncoder.hexValue(firstHexDigit) << 4) | PercentEncoder.hexValue(b)));
+          }
+          return;
+        }
+        // not an escape after all, so the '%' and any digit are kept as-is
+        flushEscape();
+      }
+
+      switch (b) {
+        case '&' -> finish(consumer);
+        case '%' -> {
+          started = true;
+          escapeLength = 1;
+        }
+        case '+' -> add((byte) ' ');
+        case '=' -> {
+          if (nameEnd < 0) {
+            started = true;
+            nameEnd = length;
+          } else {
+            add(b);
+          }
+        }
+        default -> add(b);
+      }
+    }
+
+    /**
+     * Reports the pair, if it isn't empty, and starts the next one.
+     */
+    void finish(BiConsumer<String, String> consumer) throws IOException {
+      flushEscape();
+      if (started) {
+        int end = nameEnd < 0 ? length : nameEnd;
+        consumer.accept(
+            new String(bytes, 0, end, StandardCharsets.UTF_8),
+            new String(bytes, end, length - end, StandardCharsets.UTF_8)
+        );
+      }
+
+      length = 0;
+      nameEnd = -1;
+      started = false;
+    }
+
+    private void flushEscape() throws IOException {
+      int pending = escapeLength;
+      escapeLength = 0;
+      if (pending > 0) {
+        add((byte) '%');
+      }
+      if (pending > 1) {
+        add(firstHexDigit);
+      }
+    }
+
+    private void add(byte b) throws IOException {
+      started = true;
+      if (length == bytes.length) {
+        if (length == maximumSize) {
+          throw new IOException("Name-value pair is bigger than the maximum of " + maximumSize + " bytes");
+        }
+        bytes = Arrays.copyOf(bytes, (int) Math.min((long) length * 2, maximumSize));
+      }
+      bytes[length++] = b;
+    }
+  }
+
+  public static final class Builder {
+    private int chunkSize = 8192;
+    private int maximumPairSize = 1 << 20;
+
+    private Builder() {}
+
+    /**
+     * Sets how many bytes are read at a time.
+     */
+    public Builder setChunkSize(int chunkSize) {
+      if (chunkSize <= 0) {
+        throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+      }
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * Sets how many decoded bytes a single name-value pair can take up, bounding how much memory
+     * decoding a body needs.
+     */
+    public Builder setMaximumPairSize(int maximumPairSize) {
+      if (maximumPairSize <= 0) {
+        throw new IllegalArgumentException("maximumPairSize must be positive: " + maximumPairSize);
+      }
+      this.maximumPairSize = maximumPairSize;
+      return this;
+    }
+
+    public FormUrlEncodedDecoder build() {
+      return new FormUrlEncodedDecoder(this);
+    }
+  }
+}
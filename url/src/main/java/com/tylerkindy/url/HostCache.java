@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A bounded, concurrent cache of host parse results, keyed by the raw host input and whether it
+ * was parsed as an opaque host. A hit skips parsing the host again, reusing the cached result and
+ * replaying any validation errors the host produced.
+ *
+ * <p>The cache is segmented, so lookups and insertions never take a global lock. Once it is full,
+ * the least recently used entries of a segment are evicted first.
+ */
+public final class HostCache {
+  private final Cache<Key, CachedHost> cache;
+
+  private HostCache(Builder builder) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(builder.maximumSize)
+        .concurrencyLevel(builder.concurrencyLevel)
+        .recordStats()
+        .build();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Stats stats() {
+    CacheStats stats = cache.stats();
+    return new Stats(stats.hitCount(), stats.missCount(), stats.evictionCount());
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  Optional<Host> parseHost(String input, boolean isOpaque, List<ValidationError> errors) {
+    Key key = new Key(input, isOpaque);
+
+    CachedHost cached = cache.getIfPresent(key);
+    if (cached == null) {
+      List<ValidationError> hostErrors = new ArrayList<>();
+      Optional<Host> host = HostParser.parseHost(input, isOpaque, hostErrors);
+
+      cached = new CachedHost(host, List.copyOf(hostErrors));
+      cache.put(key, cached);
+    }
+
+    errors.addAll(cached.errors());
+    return cached.host();
+  }
+
+  public record Stats(long hitCount, long missCount, long evictionCount) {
+    public long requestCount() {
+      return hitCount + missCount;
+    }
+
+    public double hitRate() {
+      long requestCount = requestCount();
+      return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+  }
+
+  private record Key(String input, boolean isOpaque) {}
+
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private record CachedHost(Optional<Host> host, List<ValidationError> errors) {}
+
+  public static final class Builder {
+    private long maximumSize = 10_000;
+    private int concurrencyLevel = 4;
+
+    private Builder() {}
+
+    public Builder setMaximumSize(long maximumSize) {
+      if (maximumSize < 0) {
+        throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+      }
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    public Builder setConcurrencyLevel(int concurrencyLevel) {
+      if (concurrencyLevel < 1) {
+        throw new IllegalArgumentException("concurrencyLevel must be positive: " + concurrencyLevel);
+      }
+      this.concurrencyLevel = concurrencyLevel;
+      return this;
+    }
+
+    public HostCache build() {
+      return new HostCache(this);
+    }
+  }
+}
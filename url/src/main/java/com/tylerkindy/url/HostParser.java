@@ -27,8 +27,6 @@ import com.tylerkindy.url.Host.Domain;
 import com.tylerkindy.url.Idna.ToAsciiParams;
 import com.tylerkindy.url.IpAddress.Ipv4Address;
 import com.tylerkindy.url.IpAddress.Ipv6Address;
-import com.tylerkindy.url.Pointer.PointedAt.CodePoint;
-import com.tylerkindy.url.Pointer.PointedAt.Eof;
 import com.tylerkindy.url.ValidationError.DomainInvalidCodePoint;
 import com.tylerkindy.url.ValidationError.DomainToAscii;
 import com.tylerkindy.url.ValidationError.HostInvalidCodePoint;
@@ -53,6 +51,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.function.IntPredicate;
 
 final class HostParser {
 
@@ -62,6 +61,8 @@ final class HostParser {
           '?', '@', '[', '\\', ']', '^', '|'
       )
       .build();
+  private static final ToAsciiParams TO_ASCII_PARAMS = buildToAsciiParams(false);
+  private static final ToAsciiParams STRICT_TO_ASCII_PARAMS = buildToAsciiParams(true);
 
   private HostParser() {
     throw new RuntimeException();
@@ -74,7 +75,7 @@ final class HostParser {
   public static Optional<Host> parseHost(String input, boolean isOpaque, List<ValidationError> errors) {
     if (!input.isEmpty() && input.charAt(0) == '[') {
       if (input.charAt(input.length() - 1) != ']') {
-        errors.add(new Ipv6Unclosed());
+        errors.add(Ipv6Unclosed.INSTANCE);
         return Optional.empty();
       }
       return parseIpv6(input.substring(1, input.length() - 1), errors)
@@ -92,17 +93,8 @@ final class HostParser {
     }
     String asciiDomain = maybeAsciiDomain.get();
 
-    if (
-        asciiDomain
-            .codePoints()
-            .anyMatch(codePoint ->
-                FORBIDDEN_HOST_CODE_POINTS.contains(codePoint) ||
-                isC0Control(codePoint) ||
-                codePoint == '%' ||
-                codePoint == 0x7f
-            )
-    ) {
-      errors.add(new DomainInvalidCodePoint());
+    if (!allMatch(asciiDomain, 0, asciiDomain.length(), HostParser::isAllowedInDomain)) {
+      errors.add(DomainInvalidCodePoint.INSTANCE);
       return Optional.empty();
     }
 
@@ -120,9 +112,9 @@ final class HostParser {
     Integer compress = null;
     Pointer pointer = new Pointer(input);
 
-    if (pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == ':') {
+    if (pointer.codePoint() == ':') {
       if (!pointer.doesRemainingStartWith(":")) {
-        errors.add(new Ipv6InvalidCompression());
+        errors.add(Ipv6InvalidCompression.INSTANCE);
         return Optional.empty();
       }
 
@@ -131,15 +123,15 @@ final class HostParser {
       compress = pieceIndex;
     }
 
-    while (pointer.pointedAt() instanceof CodePoint cp) {
-      var c = cp.codePoint();
+    while (pointer.codePoint() != Pointer.EOF) {
+      int c = pointer.codePoint();
       if (pieceIndex == 8) {
-        errors.add(new Ipv6TooManyPieces());
+        errors.add(Ipv6TooManyPieces.INSTANCE);
         return Optional.empty();
       }
       if (c == ':') {
         if (compress != null) {
-          errors.add(new Ipv6MultipleCompression());
+          errors.add(Ipv6MultipleCompression.INSTANCE);
           return Optional.empty();
         }
         pointer.increase();
@@ -153,57 +145,56 @@ final class HostParser {
 
       while (
           length < 4 &&
-              pointer.pointedAt() instanceof CodePoint cp1 &&
-              isAsciiHexDigit(cp1.codePoint())
+              isAsciiHexDigit(pointer.codePoint())
       ) {
-        value = value * 0x10 + Character.digit(cp1.codePoint(), 16);
+        value = value * 0x10 + Character.digit(pointer.codePoint(), 16);
         pointer.increase();
         length += 1;
       }
 
-      if (pointer.pointedAt() instanceof CodePoint cp1 && cp1.codePoint() == '.') {
+      if (pointer.codePoint() == '.') {
         if (length == 0) {
-          errors.add(new Ipv4InIpv6InvalidCodePoint());
+          errors.add(Ipv4InIpv6InvalidCodePoint.INSTANCE);
           return Optional.empty();
         }
         pointer.decrease(length);
 
         if (pieceIndex > 6) {
-          errors.add(new Ipv4InIpv6TooManyPieces());
+          errors.add(Ipv4InIpv6TooManyPieces.INSTANCE);
           return Optional.empty();
         }
 
         int numbersSeen = 0;
 
-        while (pointer.pointedAt() instanceof CodePoint cp2) {
+        while (pointer.codePoint() != Pointer.EOF) {
           Integer ipv4Piece = null;
           if (numbersSeen > 0) {
-            if (cp2.codePoint() == '.' && numbersSeen < 4) {
+            if (pointer.codePoint() == '.' && numbersSeen < 4) {
               pointer.increase();
             } else {
-              errors.add(new Ipv4InIpv6InvalidCodePoint());
+              errors.add(Ipv4InIpv6InvalidCodePoint.INSTANCE);
               return Optional.empty();
             }
           }
 
-          if (!(pointer.pointedAt() instanceof CodePoint cp3 && isAsciiDigit(cp3.codePoint()))) {
-            errors.add(new Ipv4InIpv6InvalidCodePoint());
+          if (!isAsciiDigit(pointer.codePoint())) {
+            errors.add(Ipv4InIpv6InvalidCodePoint.INSTANCE);
             return Optional.empty();
           }
 
-          while (pointer.pointedAt() instanceof CodePoint cp4 && isAsciiDigit(cp4.codePoint())) {
-            int number = Character.digit(cp4.codePoint(), 10);
+          while (isAsciiDigit(pointer.codePoint())) {
+            int number = Character.digit(pointer.codePoint(), 10);
             if (ipv4Piece == null) {
               ipv4Piece = number;
             } else if (ipv4Piece == 0) {
-              errors.add(new Ipv4InIpv6InvalidCodePoint());
+              errors.add(Ipv4InIpv6InvalidCodePoint.INSTANCE);
               return Optional.empty();
             } else {
               ipv4Piece = ipv4Piece * 10 + number;
             }
 
             if (ipv4Piece > 255) {
-              errors.add(new Ipv4InIpv6OutOfRangePart());
+              errors.add(Ipv4InIpv6OutOfRangePart.INSTANCE);
               return Optional.empty();
             }
             pointer.increase();
@@ -221,19 +212,19 @@ final class HostParser {
         }
 
         if (numbersSeen != 4) {
-          errors.add(new Ipv4InIpv6TooFewParts());
+          errors.add(Ipv4InIpv6TooFewParts.INSTANCE);
           return Optional.empty();
         }
         break;
-      } else if (pointer.pointedAt() instanceof CodePoint cp1 && cp1.codePoint() == ':') {
+      } else if (pointer.codePoint() == ':') {
         pointer.increase();
 
-        if (pointer.pointedAt() instanceof Eof) {
-          errors.add(new Ipv6InvalidCodePoint());
+        if (pointer.codePoint() == Pointer.EOF) {
+          errors.add(Ipv6InvalidCodePoint.INSTANCE);
           return Optional.empty();
         }
-      } else if (!(pointer.pointedAt() instanceof Eof)) {
-        errors.add(new Ipv6InvalidCodePoint());
+      } else if (pointer.codePoint() != Pointer.EOF) {
+        errors.add(Ipv6InvalidCodePoint.INSTANCE);
         return Optional.empty();
       }
 
@@ -254,7 +245,7 @@ final class HostParser {
         swaps -= 1;
       }
     } else if (pieceIndex != 8) {
-      errors.add(new Ipv6TooFewPieces());
+      errors.add(Ipv6TooFewPieces.INSTANCE);
       return Optional.empty();
     }
 
@@ -267,7 +258,7 @@ final class HostParser {
         .findAny();
 
     if (maybeForbiddenCodePoint.isPresent()) {
-      errors.add(new HostInvalidCodePoint());
+      errors.add(HostInvalidCodePoint.INSTANCE);
       return Optional.empty();
     }
 
@@ -291,7 +282,7 @@ final class HostParser {
                         isAsciiHexDigit(input.codePointAt(input.offsetByCodePoints(i, 2)))
                 )
         ) {
-          errors.add(new InvalidUrlUnit("Unexpected %"));
+          errors.add(InvalidUrlUnit.UNEXPECTED_PERCENT);
         }
       }
     }
@@ -306,55 +297,72 @@ final class HostParser {
   ) {
     Optional<String> maybeResult = Idna.toAscii(
         domain,
-        ToAsciiParams
-          .builder()
-          .setUseStd3AsciiRules(beStrict)
-          .setCheckHyphens(false)
-          .setCheckBidi(true)
-          .setCheckJoiners(true)
-          .setTransitionalProcessing(false)
-          .setVerifyDnsLength(beStrict)
-          .build()
+        beStrict ? STRICT_TO_ASCII_PARAMS : TO_ASCII_PARAMS
     )
         .filter(not(String::isEmpty));
 
     if (maybeResult.isEmpty()) {
-      errors.add(new DomainToAscii());
+      errors.add(DomainToAscii.INSTANCE);
     }
 
     return maybeResult;
   }
 
+  private static ToAsciiParams buildToAsciiParams(boolean beStrict) {
+    return ToAsciiParams
+        .builder()
+        .setUseStd3AsciiRules(beStrict)
+        .setCheckHyphens(false)
+        .setCheckBidi(true)
+        .setCheckJoiners(true)
+        .setTransitionalProcessing(false)
+        .setVerifyDnsLength(beStrict)
+        .build();
+  }
+
   private static boolean endsInANumber(String asciiDomain) {
-    List<String> parts = new ArrayList<>(Arrays.asList(asciiDomain.split("\\.", -1)));
-    if (parts.get(parts.size() - 1).isEmpty()) {
-      if (parts.size() == 1) {
+    int end = asciiDomain.length();
+    if (end > 0 && asciiDomain.charAt(end - 1) == '.') {
+      if (end == 1) {
         return false;
       }
-      parts.remove(parts.size() - 1);
+      end--;
     }
 
-    String last = parts.get(parts.size() - 1);
-    if (
-        !last.isEmpty() &&
-        last
-            .codePoints()
-            .allMatch(CharacterUtils::isAsciiDigit)
-    ) {
+    int start = asciiDomain.lastIndexOf('.', end - 1) + 1;
+    if (start == end) {
+      return false;
+    }
+    if (allMatch(asciiDomain, start, end, CharacterUtils::isAsciiDigit)) {
       return true;
     }
 
-    return (last.startsWith("0X") || last.startsWith("0x")) &&
-        last
-            .substring(2)
-            .codePoints()
-            .allMatch(CharacterUtils::isAsciiHexDigit);
+    return end - start >= 2 &&
+        asciiDomain.charAt(start) == '0' &&
+        (asciiDomain.charAt(start + 1) == 'x' || asciiDomain.charAt(start + 1) == 'X') &&
+        allMatch(asciiDomain, start + 2, end, CharacterUtils::isAsciiHexDigit);
+  }
+
+  /**
+   * Forbidden domain code points are all ASCII, so it's enough to check each char on its own.
+   */
+  private static boolean isAllowedInDomain(int c) {
+    return !FORBIDDEN_HOST_CODE_POINTS.contains(c) && !isC0Control(c) && c != '%' && c != 0x7f;
+  }
+
+  private static boolean allMatch(String s, int start, int end, IntPredicate predicate) {
+    for (int i = start; i < end; i++) {
+      if (!predicate.test(s.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
   }
 
   private static Optional<Ipv4Address> parseIpv4(String input, List<ValidationError> errors) {
     List<String> parts = Arrays.asList(input.split("\\."));
     if (parts.get(parts.size() - 1).isEmpty()) {
-      errors.add(new Ipv4EmptyPart());
+      errors.add(Ipv4EmptyPart.INSTANCE);
 
       if (parts.size() > 1) {
         parts.remove(parts.size() - 1);
@@ -362,7 +370,7 @@ final class HostParser {
     }
 
     if (parts.size() > 4) {
-      errors.add(new Ipv4TooManyParts());
+      errors.add(Ipv4TooManyParts.INSTANCE);
       return Optional.empty();
     }
 
@@ -370,19 +378,19 @@ final class HostParser {
     for (String part : parts) {
       Optional<Ipv4NumberParseResult> maybeResult = parseIpv4Number(part);
       if (maybeResult.isEmpty()) {
-        errors.add(new Ipv4NonNumericPart());
+        errors.add(Ipv4NonNumericPart.INSTANCE);
         return Optional.empty();
       }
       Ipv4NumberParseResult result = maybeResult.get();
 
       if (result.validationError()) {
-        errors.add(new Ipv4NonDecimalPart());
+        errors.add(Ipv4NonDecimalPart.INSTANCE);
       }
       numbers.add(result.output());
     }
 
     if (numbers.stream().anyMatch(number -> number > 255)) {
-      errors.add(new Ipv4OutOfRangePart());
+      errors.add(Ipv4OutOfRangePart.INSTANCE);
     }
     if (numbers.subList(0, numbers.size() - 1).stream().anyMatch(number -> number > 255)) {
       return Optional.empty();
@@ -17,13 +17,12 @@
 package com.tylerkindy.url;
 
 import static com.tylerkindy.url.CharacterUtils.isAscii;
+import static com.tylerkindy.url.CharacterUtils.isAsciiAlphanumeric;
 
-import com.tylerkindy.url.common.MappingRow;
-import com.tylerkindy.url.common.MappingRow.WithMapping;
+import com.tylerkindy.url.common.IdnaMappingTable;
 import com.tylerkindy.url.common.Status;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
-import java.util.List;
 import java.util.Optional;
 
 final class Idna {
@@ -33,6 +32,11 @@ final class Idna {
   }
 
   public static Optional<String> toAscii(String domain, ToAsciiParams params) {
+    String asciiDomain = asciiToAscii(domain, params);
+    if (asciiDomain != null) {
+      return Optional.of(asciiDomain);
+    }
+
     IdnaProcessResult result = process(
         domain,
         params.useStd3AsciiRules(),
@@ -77,6 +81,45 @@ final class Idna {
     return Optional.of(String.join(".", labels));
   }
 
+  /**
+   * Handles the common case of a domain that is already ASCII and has no Punycode labels. Mapping
+   * such a domain only lowercases it, normalizing leaves it unchanged, and every label is valid,
+   * so the result can be computed in a single pass without consulting the mapping table.
+   *
+   * @return the processed domain, or null if the domain needs full processing
+   */
+  private static String asciiToAscii(String domain, ToAsciiParams params) {
+    if (params.checkHyphens() || params.verifyDnsLength()) {
+      return null;
+    }
+
+    char[] lowercased = null;
+    int labelStart = 0;
+    for (int i = 0; i < domain.length(); i++) {
+      char c = domain.charAt(i);
+      if (!isAscii(c)) {
+        return null;
+      }
+
+      if (c == '.') {
+        labelStart = i + 1;
+      } else if (c >= 'A' && c <= 'Z') {
+        if (lowercased == null) {
+          lowercased = domain.toCharArray();
+        }
+        lowercased[i] = (char) (c + ('a' - 'A'));
+      } else if (c == '-') {
+        if (i == labelStart + 3 && domain.regionMatches(true, labelStart, "xn--", 0, 4)) {
+          return null;
+        }
+      } else if (params.useStd3AsciiRules() && !isAsciiAlphanumeric(c)) {
+        return null;
+      }
+    }
+
+    return lowercased == null ? domain : new String(lowercased);
+  }
+
   private static IdnaProcessResult process(
       String domain,
       boolean useStd3AsciiRules,
@@ -102,13 +145,14 @@ final class Idna {
       boolean useStd3AsciiRules,
       boolean transitionalProcessing
   ) {
+    IdnaMapper mapper = IdnaMapper.current();
     StringBuilder mappedBuilder = new StringBuilder(domain.length());
 
     int index = 0;
     while (index < domain.length()) {
       int codePoint = domain.codePointAt(index);
-      MappingRow mappingRow = IdnaMapper.current().getMapping(codePoint);
-      Status status = mappingRow.status();
+      int entry = mapper.lookup(codePoint);
+      Status status = IdnaMappingTable.status(entry);
 
       if (
           status == Status.DISALLOWED ||
@@ -124,13 +168,11 @@ final class Idna {
         if (transitionalProcessing && codePoint == 0x1E9E) {
           mappedBuilder.append("ss");
         } else {
-          List<Integer> mapping = ((WithMapping) mappingRow).mapping();
-          mapping.forEach(mappedBuilder::appendCodePoint);
+          mapper.appendMapping(entry, mappedBuilder);
         }
       } else if (status == Status.DEVIATION) {
         if (transitionalProcessing) {
-          List<Integer> mapping = ((WithMapping) mappingRow).mapping();
-          mapping.forEach(mappedBuilder::appendCodePoint);
+          mapper.appendMapping(entry, mappedBuilder);
         } else {
           mappedBuilder.appendCodePoint(codePoint);
         }
@@ -243,8 +285,12 @@ final class Idna {
         return false;
       }
     }
-    for (int codePoint : new CodePointIterable(label)) {
-      Status status = IdnaMapper.current().getMapping(codePoint).status();
+    IdnaMapper mapper = IdnaMapper.current();
+    for (int i = 0; i < label.length(); ) {
+      int codePoint = label.codePointAt(i);
+      i += Character.charCount(codePoint);
+
+      Status status = mapper.getStatus(codePoint);
       if (transitionalProcessing) {
         if (status != Status.VALID) {
           return false;
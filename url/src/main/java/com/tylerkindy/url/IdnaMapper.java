@@ -16,38 +16,29 @@
 
 package com.tylerkindy.url;
 
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.google.common.io.Resources;
-import com.tylerkindy.url.common.CodePoints;
-import com.tylerkindy.url.common.CodePoints.Range;
-import com.tylerkindy.url.common.CodePoints.Single;
-import com.tylerkindy.url.common.MappingRow;
+import com.tylerkindy.url.common.IdnaMappingTable;
+import com.tylerkindy.url.common.Status;
 import com.tylerkindy.url.common.UnicodeVersion;
 import com.tylerkindy.url.common.UnicodeVersions;
 import java.io.IOException;
-import java.util.List;
 
 final class IdnaMapper {
 
   private static final IdnaMapper CURRENT = new IdnaMapper(UnicodeVersions.getCurrentUnicodeVersion());
 
-  private final List<MappingRow> mappingRows;
+  private final IdnaMappingTable table;
 
   public IdnaMapper(UnicodeVersion version) {
-    this.mappingRows = readMappingTable(version);
+    this.table = readMappingTable(version);
   }
 
-  private static List<MappingRow> readMappingTable(UnicodeVersion version) {
-    CsvMapper csvMapper = new CsvMapper();
-    CsvSchema schema = csvMapper.schemaFor(MappingRow.class).withHeader();
-
+  private static IdnaMappingTable readMappingTable(UnicodeVersion version) {
     try (
-        var mapStream = Resources.getResource("com/tylerkindy/url/idnamap/" + version + ".csv")
+        var mapStream = Resources.getResource("com/tylerkindy/url/idnamap/" + version + ".bin")
             .openStream()
     ) {
-      return csvMapper.readerFor(MappingRow.class).with(schema).<MappingRow>readValues(mapStream)
-          .readAll();
+      return IdnaMappingTable.read(mapStream);
     } catch (IOException e) {
       throw new RuntimeException("Error loading IDNA map for Unicode " + version, e);
     }
@@ -57,25 +48,19 @@ final class IdnaMapper {
     return CURRENT;
   }
 
-  public MappingRow getMapping(int codePoint) {
-    // TODO: binary search
-    return mappingRows.stream()
-        .filter(row ->
-            {
-              CodePoints codePoints = row.codePoints();
-              if (codePoints instanceof Single s) {
-                return s.codePoint() == codePoint;
-              }
-              if (codePoints instanceof Range r) {
-                return Integer.compareUnsigned(r.lowCodePoint(), codePoint) <= 0 &&
-                    Integer.compareUnsigned(codePoint, r.highCodePoint()) <= 0;
-              }
-              throw new IllegalStateException("Unknown CodePoints class: " + codePoints);
-            }
-        )
-        .findAny()
-        .orElseThrow(() -> new IllegalArgumentException(
-            "No mapping found for code point 0x" + Integer.toHexString(codePoint)
-        ));
+  /**
+   * @return the packed table entry for the code point
+   * @see IdnaMappingTable#lookup(int)
+   */
+  public int lookup(int codePoint) {
+    return table.lookup(codePoint);
+  }
+
+  public Status getStatus(int codePoint) {
+    return table.getStatus(codePoint);
+  }
+
+  public void appendMapping(int entry, StringBuilder output) {
+    table.appendMapping(entry, output);
   }
 }
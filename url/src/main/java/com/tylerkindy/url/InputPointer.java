@@ -0,0 +1,73 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import com.tylerkindy.url.Pointer.Prefix;
+
+/**
+ * A cursor over the code points of the parser's input, whatever form that input takes.
+ */
+sealed interface InputPointer permits Pointer, Utf8Pointer {
+  /**
+   * @return the current code point, or {@link Pointer#EOF} or {@link Pointer#NOWHERE}
+   */
+  int codePoint();
+
+  void increase();
+
+  default void increase(int numCodePoints) {
+    for (int i = 0; i < numCodePoints; i++) {
+      increase();
+    }
+  }
+
+  void decrease();
+
+  default void decrease(int numCodePoints) {
+    for (int i = 0; i < numCodePoints; i++) {
+      decrease();
+    }
+  }
+
+  void reset();
+
+  /**
+   * @return whether the input after the current code point starts with the literal ASCII prefix
+   */
+  boolean doesRemainingStartWith(String prefix);
+
+  /**
+   * @return whether the input after the current code point matches the precompiled prefix
+   */
+  boolean doesRemainingStartWith(Prefix prefix);
+
+  boolean doesRemainingStartWithWindowsDriveLetter();
+
+  /**
+   * UTF-8 percent-encodes the current code point into the output.
+   */
+  void appendPercentEncoded(StringBuilder output, CharacterSet percentEncodeSet);
+
+  /**
+   * Appends the run of code points starting at the current one that are in the copy table, as-is,
+   * leaving the pointer on the last one appended.
+   *
+   * @return false, without appending anything, if the current code point isn't in the table
+   * @see CharacterUtils#asciiCopyTable
+   */
+  boolean appendRun(StringBuilder output, boolean[] copyTable);
+}
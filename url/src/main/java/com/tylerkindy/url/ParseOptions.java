@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import java.util.Optional;
+
+/**
+ * Options controlling how a URL is parsed.
+ */
+public final class ParseOptions {
+  private static final ParseOptions DEFAULT = builder().build();
+
+  private final Diagnostics diagnostics;
+  private final HostCache hostCache;
+
+  private ParseOptions(Builder builder) {
+    this.diagnostics = builder.diagnostics;
+    this.hostCache = builder.hostCache;
+  }
+
+  public static ParseOptions defaults() {
+    return DEFAULT;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public Diagnostics diagnostics() {
+    return diagnostics;
+  }
+
+  public Optional<HostCache> hostCache() {
+    return Optional.ofNullable(hostCache);
+  }
+
+  /**
+   * How validation errors are reported.
+   */
+  public enum Diagnostics {
+    /** Collect every validation error, reporting them on failure. */
+    COLLECT,
+    /** Record no validation errors at all; failures carry an empty error list. */
+    NONE,
+    /** Stop at the first validation error, even a recoverable one, and fail with just that error. */
+    FAIL_FAST,
+  }
+
+  public static final class Builder {
+    private Diagnostics diagnostics = Diagnostics.COLLECT;
+    private HostCache hostCache = null;
+
+    private Builder() {}
+
+    public Builder setDiagnostics(Diagnostics diagnostics) {
+      this.diagnostics = diagnostics;
+      return this;
+    }
+
+    /**
+     * Looks hosts up in the given cache before parsing them.
+     */
+    public Builder setHostCache(HostCache hostCache) {
+      this.hostCache = hostCache;
+      return this;
+    }
+
+    public ParseOptions build() {
+      return new ParseOptions(this);
+    }
+  }
+}
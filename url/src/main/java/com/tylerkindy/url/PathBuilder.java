@@ -0,0 +1,198 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A non-opaque path as it's being parsed. It can start with a prefix of another URL's serialized
+ * path, shared rather than split into segments, so resolving against a base doesn't copy the base's
+ * path. Segments parsed from the input go after it, serialized into a buffer that's created with the
+ * first one and reused between parses, so adding one doesn't allocate.
+ */
+final class PathBuilder {
+  /** The serialized URL the shared prefix is part of, or null if there isn't one. */
+  private String shared = null;
+  private int sharedStart = 0;
+  /** The end of the shared prefix, which is {@code /}-separated segments, each with a leading {@code /}. */
+  private int sharedEnd = 0;
+  /**
+   * The segments after the shared prefix, serialized, each with a leading {@code /}, or null until
+   * the first one is added.
+   */
+  private StringBuilder segments = null;
+  /** The index each segment starts at in {@link #segments}. */
+  private int[] segmentStarts = null;
+  private int segmentCount = 0;
+  /** The view handed to visitors for each segment in turn, or null until the first visit. */
+  private Segment segment = null;
+
+  void clear() {
+    shared = null;
+    sharedStart = 0;
+    sharedEnd = 0;
+    if (segments != null) {
+      segments.setLength(0);
+    }
+    segmentCount = 0;
+  }
+
+  /**
+   * @return the buffer the segments are serialized into, creating it if need be
+   */
+  StringBuilder segments() {
+    if (segments == null) {
+      segments = new StringBuilder();
+      segmentStarts = new int[16];
+    }
+    return segments;
+  }
+
+  /**
+   * Starts the path off as the serialized path in {@code [start, end)} of the href.
+   */
+  void share(String href, int start, int end) {
+    clear();
+    shared = href;
+    sharedStart = start;
+    sharedEnd = end;
+  }
+
+  void add(CharSequence segment) {
+    StringBuilder segments = segments();
+    if (segmentCount == segmentStarts.length) {
+      segmentStarts = Arrays.copyOf(segmentStarts, segmentCount * 2);
+    }
+    segmentStarts[segmentCount++] = segments.length();
+    segments.append('/').append(segment);
+  }
+
+  boolean isEmpty() {
+    return sharedEnd == sharedStart && segmentCount == 0;
+  }
+
+  boolean hasSingleSegment() {
+    if (sharedEnd == sharedStart) {
+      return segmentCount == 1;
+    }
+    return segmentCount == 0 && shared.lastIndexOf('/', sharedEnd - 1) == sharedStart;
+  }
+
+  /**
+   * @return the first segment; the path must not be empty
+   */
+  String first() {
+    if (sharedEnd == sharedStart) {
+      int end = segmentCount > 1 ? segmentStarts[1] : segments.length();
+      return segments.substring(1, end);
+    }
+
+    int end = shared.indexOf('/', sharedStart + 1);
+    if (end < 0 || end > sharedEnd) {
+      end = sharedEnd;
+    }
+    return shared.substring(sharedStart + 1, end);
+  }
+
+  /**
+   * Removes the last segment, if there is one.
+   */
+  void removeLast() {
+    if (segmentCount > 0) {
+      segments.setLength(segmentStarts[--segmentCount]);
+    } else if (sharedEnd > sharedStart) {
+      sharedEnd = shared.lastIndexOf('/', sharedEnd - 1);
+    }
+  }
+
+  /**
+   * Reports each segment to the visitor. A {@link UrlSerializer} gets the path all at once, without
+   * splitting it into segments.
+   */
+  void visit(UrlVisitor visitor) {
+    if (visitor instanceof UrlSerializer serializer) {
+      if (sharedEnd > sharedStart) {
+        serializer.visitSerializedPath(shared, sharedStart, sharedEnd);
+      }
+      if (segments != null) {
+        serializer.visitSerializedPath(segments, 0, segments.length());
+      }
+      return;
+    }
+
+    if (segment == null) {
+      segment = new Segment();
+    }
+    if (sharedEnd > sharedStart) {
+      visitSegments(visitor, shared, sharedStart, sharedEnd);
+    }
+    if (segments != null) {
+      visitSegments(visitor, segments, 0, segments.length());
+    }
+  }
+
+  private void visitSegments(UrlVisitor visitor, CharSequence serialized, int start, int end) {
+    while (start < end) {
+      int segmentEnd = start + 1;
+      while (segmentEnd < end && serialized.charAt(segmentEnd) != '/') {
+        segmentEnd++;
+      }
+      visitor.visitPathSegment(segment.reset(serialized, start + 1, segmentEnd));
+      start = segmentEnd;
+    }
+  }
+
+  /**
+   * A view of one segment of a serialized path. Visitors only get to use a segment during the call
+   * it's passed to, so one view is moved from segment to segment instead of copying each out.
+   */
+  private static final class Segment implements CharSequence {
+    private CharSequence serialized;
+    private int start;
+    private int end;
+
+    Segment reset(CharSequence serialized, int start, int end) {
+      this.serialized = serialized;
+      this.start = start;
+      this.end = end;
+      return this;
+    }
+
+    @Override
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+      Objects.checkIndex(index, length());
+      return serialized.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      Objects.checkFromToIndex(start, end, length());
+      return serialized.subSequence(this.start + start, this.start + end);
+    }
+
+    @Override
+    public String toString() {
+      return serialized.subSequence(start, end).toString();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The segments of a serialized non-opaque path, as an immutable list over the string it's part of.
+ * Only the offsets between segments are kept, and each segment is cut out of the string as it's
+ * read.
+ */
+final class PathSegments extends AbstractList<String> implements RandomAccess {
+  private final String serialized;
+  /** The index of each segment's leading {@code /}, followed by the end of the path. */
+  private final int[] bounds;
+
+  private PathSegments(String serialized, int[] bounds) {
+    this.serialized = serialized;
+    this.bounds = bounds;
+  }
+
+  /**
+   * @return the segments of the path serialized in {@code [start, end)} of the string
+   */
+  static PathSegments of(String serialized, int start, int end) {
+    int count = 0;
+    for (int i = start; i < end; i++) {
+      if (serialized.charAt(i) == '/') {
+        count++;
+      }
+    }
+
+    int[] bounds = new int[count + 1];
+    int segment = 0;
+    for (int i = start; i < end; i++) {
+      if (serialized.charAt(i) == '/') {
+        bounds[segment++] = i;
+      }
+    }
+    bounds[count] = end;
+    return new PathSegments(serialized, bounds);
+  }
+
+  @Override
+  public String get(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return serialized.substring(bounds[index] + 1, bounds[index + 1]);
+  }
+
+  @Override
+  public int size() {
+    return bounds.length - 1;
+  }
+}
@@ -17,16 +17,25 @@
 package com.tylerkindy.url;
 
 import com.google.common.collect.Range;
-import java.nio.BufferUnderflowException;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
 
-final class PercentEncoder {
+/**
+ * Percent-encoding and decoding, with the percent-encode sets the URL standard defines.
+ *
+ * @see <a href="https://url.spec.whatwg.org/#percent-encoded-bytes">Percent-encoded bytes</a>
+ */
+public final class PercentEncoder {
+  /** The C0 control percent-encode set. */
   public static final CharacterSet C0_CONTROL = CharacterSet.builder()
       .addRange(Range.closed((int) '\u0000', (int) '\u001F'))
       .addRange(Range.greaterThan((int) '~'))
       .build();
+  /** The query percent-encode set. */
   public static final CharacterSet QUERY = CharacterSet.builder()
       .addAll(C0_CONTROL)
       .addCodePoint(' ')
@@ -35,10 +44,12 @@ final class PercentEncoder {
       .addCodePoint('<')
       .addCodePoint('>')
       .build();
+  /** The special-query percent-encode set. */
   public static final CharacterSet SPECIAL_QUERY = CharacterSet.builder()
       .addAll(QUERY)
       .addCodePoint('\'')
       .build();
+  /** The path percent-encode set. */
   public static final CharacterSet PATH = CharacterSet.builder()
       .addAll(QUERY)
       .addCodePoint('?')
@@ -46,6 +57,7 @@ final class PercentEncoder {
       .addCodePoint('{')
       .addCodePoint('}')
       .build();
+  /** The userinfo percent-encode set. */
   public static final CharacterSet USERINFO = CharacterSet.builder()
       .addAll(PATH)
       .addCodePoint('/')
@@ -56,25 +68,49 @@ final class PercentEncoder {
       .addRange(Range.closed((int) '[', (int) '^'))
       .addCodePoint('|')
       .build();
+  /** The component percent-encode set. */
+  public static final CharacterSet COMPONENT = CharacterSet.builder()
+      .addAll(USERINFO)
+      .addRange('$', '&')
+      .addCodePoints('+', ',')
+      .build();
+  /** The application/x-www-form-urlencoded percent-encode set. */
+  public static final CharacterSet APPLICATION_X_WWW_FORM_URLENCODED = CharacterSet.builder()
+      .addAll(COMPONENT)
+      .addCodePoints('!', '\'', '(', ')', '~')
+      .build();
+  /** The fragment percent-encode set. */
   public static final CharacterSet FRAGMENT = CharacterSet.builder()
       .addAll(C0_CONTROL)
       .addCodePoints(' ', '"', '<', '>', '`')
       .build();
 
+  private static final char[] UPPER_HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+  /** The value of each hex digit byte, or -1 for bytes that aren't hex digits. */
+  private static final int[] HEX_VALUES = new int[0x100];
+
+  static {
+    Arrays.fill(HEX_VALUES, -1);
+    for (int i = 0; i < UPPER_HEX_DIGITS.length; i++) {
+      HEX_VALUES[UPPER_HEX_DIGITS[i]] = i;
+      HEX_VALUES[Character.toLowerCase(UPPER_HEX_DIGITS[i])] = i;
+    }
+  }
+
   private PercentEncoder() {
     throw new RuntimeException();
   }
 
   public static String utf8PercentEncode(String input, CharacterSet percentEncodeSet) {
-    return percentEncodeAfterEncoding(StandardCharsets.UTF_8, input, percentEncodeSet);
+    StringBuilder output = new StringBuilder(input.length());
+    appendUtf8PercentEncoded(output, input, percentEncodeSet);
+    return output.toString();
   }
 
   public static String utf8PercentEncode(int codePoint, CharacterSet percentEncodeSet) {
-    return percentEncodeAfterEncoding(
-        StandardCharsets.UTF_8,
-        Character.toString(codePoint),
-        percentEncodeSet
-    );
+    StringBuilder output = new StringBuilder(12);
+    appendUtf8PercentEncoded(output, codePoint, percentEncodeSet);
+    return output.toString();
   }
 
   public static String percentEncodeAfterEncoding(Charset encoding, String input, CharacterSet percentEncodeSet) {
@@ -82,9 +118,13 @@ final class PercentEncoder {
   }
 
   public static String percentEncodeAfterEncoding(Charset encoding, String input, CharacterSet percentEncodeSet, boolean spaceAsPlus) {
-    ByteBuffer encoded = encoding.encode(input);
+    StringBuilder output = new StringBuilder(input.length());
+    if (encoding.equals(StandardCharsets.UTF_8)) {
+      appendUtf8PercentEncoded(output, input, 0, input.length(), percentEncodeSet, spaceAsPlus);
+      return output.toString();
+    }
 
-    StringBuilder output = new StringBuilder();
+    ByteBuffer encoded = encoding.encode(input);
     while (encoded.hasRemaining()) {
       byte b = encoded.get();
       if (spaceAsPlus && b == 0x20) {
@@ -92,65 +132,273 @@ final class PercentEncoder {
         continue;
       }
 
-      int isomorph = Byte.toUnsignedInt(b);
+      appendPercentEncodedByte(output, Byte.toUnsignedInt(b), percentEncodeSet);
+    }
+
+    return output.toString();
+  }
 
-      if (percentEncodeSet.contains(isomorph)) {
-        output
-            .append('%')
-            .append(String.format("%02x", isomorph).toUpperCase());
+  /**
+   * UTF-8 percent-encodes the input into the output.
+   */
+  public static void appendUtf8PercentEncoded(
+      StringBuilder output,
+      CharSequence input,
+      CharacterSet percentEncodeSet
+  ) {
+    appendUtf8PercentEncoded(output, input, 0, input.length(), percentEncodeSet, false);
+  }
+
+  /**
+   * UTF-8 percent-encodes the chars in {@code [start, end)} of the input into the output, encoding
+   * spaces as {@code +} if asked to, as the application/x-www-form-urlencoded serializer does.
+   */
+  public static void appendUtf8PercentEncoded(
+      StringBuilder output,
+      CharSequence input,
+      int start,
+      int end,
+      CharacterSet percentEncodeSet,
+      boolean spaceAsPlus
+  ) {
+    try {
+      appendUtf8PercentEncoded((Appendable) output, input, start, end, percentEncodeSet, spaceAsPlus);
+    } catch (IOException e) {
+      throw new AssertionError("StringBuilder doesn't throw IOException", e);
+    }
+  }
+
+  /**
+   * UTF-8 percent-encodes the chars in {@code [start, end)} of the input into the output, encoding
+   * spaces as {@code +} if asked to, as the application/x-www-form-urlencoded serializer does.
+   * Runs of ASCII chars that need no encoding are appended in one go, and nothing else is
+   * allocated along the way.
+   */
+  public static void appendUtf8PercentEncoded(
+      Appendable output,
+      CharSequence input,
+      int start,
+      int end,
+      CharacterSet percentEncodeSet,
+      boolean spaceAsPlus
+  ) throws IOException {
+    int i = start;
+    while (i < end) {
+      int runEnd = i;
+      while (runEnd < end && isCopiedAsIs(input.charAt(runEnd), percentEncodeSet, spaceAsPlus)) {
+        runEnd++;
+      }
+      if (runEnd > i) {
+        output.append(input, i, runEnd);
+        i = runEnd;
+        continue;
+      }
+
+      int codePoint = codePointAt(input, i, end);
+      if (spaceAsPlus && codePoint == ' ') {
+        output.append('+');
       } else {
-        output.appendCodePoint(isomorph);
+        appendUtf8PercentEncoded(output, codePoint, percentEncodeSet);
       }
+      i += Character.charCount(codePoint);
     }
+  }
 
-    return output.toString();
+  private static int codePointAt(CharSequence input, int index, int end) {
+    char high = input.charAt(index);
+    if (Character.isHighSurrogate(high) && index + 1 < end) {
+      char low = input.charAt(index + 1);
+      if (Character.isLowSurrogate(low)) {
+        return Character.toCodePoint(high, low);
+      }
+    }
+    return high;
+  }
+
+  private static boolean isCopiedAsIs(char c, CharacterSet percentEncodeSet, boolean spaceAsPlus) {
+    return c < 0x80 && !percentEncodeSet.contains(c) && !(spaceAsPlus && c == ' ');
   }
 
+  /**
+   * UTF-8 percent-encodes the code point into the output.
+   */
+  public static void appendUtf8PercentEncoded(StringBuilder output, int codePoint, CharacterSet percentEncodeSet) {
+    try {
+      appendUtf8PercentEncoded((Appendable) output, codePoint, percentEncodeSet);
+    } catch (IOException e) {
+      throw new AssertionError("StringBuilder doesn't throw IOException", e);
+    }
+  }
+
+  /**
+   * UTF-8 percent-encodes the code point into the output, without going through a {@link Charset}.
+   */
+  public static void appendUtf8PercentEncoded(
+      Appendable output,
+      int codePoint,
+      CharacterSet percentEncodeSet
+  ) throws IOException {
+    if (codePoint < 0x80) {
+      appendPercentEncodedByte(output, codePoint, percentEncodeSet);
+    } else if (codePoint < 0x800) {
+      appendPercentEncodedByte(output, 0xC0 | (codePoint >>> 6), percentEncodeSet);
+      appendPercentEncodedByte(output, 0x80 | (codePoint & 0x3F), percentEncodeSet);
+    } else if (codePoint < 0x10000) {
+      if (Character.isSurrogate((char) codePoint)) {
+        // lone surrogates are replaced with '?', as the UTF-8 charset's encoder does
+        appendPercentEncodedByte(output, '?', percentEncodeSet);
+        return;
+      }
+      appendPercentEncodedByte(output, 0xE0 | (codePoint >>> 12), percentEncodeSet);
+      appendPercentEncodedByte(output, 0x80 | ((codePoint >>> 6) & 0x3F), percentEncodeSet);
+      appendPercentEncodedByte(output, 0x80 | (codePoint & 0x3F), percentEncodeSet);
+    } else {
+      appendPercentEncodedByte(output, 0xF0 | (codePoint >>> 18), percentEncodeSet);
+      appendPercentEncodedByte(output, 0x80 | ((codePoint >>> 12) & 0x3F), percentEncodeSet);
+      appendPercentEncodedByte(output, 0x80 | ((codePoint >>> 6) & 0x3F), percentEncodeSet);
+      appendPercentEncodedByte(output, 0x80 | (codePoint & 0x3F), percentEncodeSet);
+    }
+  }
+
+  static void appendPercentEncodedByte(StringBuilder output, int isomorph, CharacterSet percentEncodeSet) {
+    try {
+      appendPercentEncodedByte((Appendable) output, isomorph, percentEncodeSet);
+    } catch (IOException e) {
+      throw new AssertionError("StringBuilder doesn't throw IOException", e);
+    }
+  }
+
+  private static void appendPercentEncodedByte(
+      Appendable output,
+      int isomorph,
+      CharacterSet percentEncodeSet
+  ) throws IOException {
+    if (percentEncodeSet.contains(isomorph)) {
+      output
+          .append('%')
+          .append(UPPER_HEX_DIGITS[isomorph >>> 4])
+          .append(UPPER_HEX_DIGITS[isomorph & 0xF]);
+    } else {
+      output.append((char) isomorph);
+    }
+  }
+
+  /**
+   * Percent-decodes the input, decoding the resulting bytes as UTF-8. The input is returned as-is
+   * if it has no {@code %} in it.
+   */
   public static String percentDecode(String input) {
-    Charset charset = StandardCharsets.UTF_8;
-    return charset.decode(percentDecode(charset.encode(input))).toString();
+    if (input.indexOf('%') < 0) {
+      return input;
+    }
+
+    byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+    int length = percentDecode(bytes, 0, bytes.length, bytes, 0);
+    return new String(bytes, 0, length, StandardCharsets.UTF_8);
   }
 
-  private static ByteBuffer percentDecode(ByteBuffer bytes) {
-    ByteBuffer output = ByteBuffer.allocate(bytes.capacity());
-    while (bytes.hasRemaining()) {
-      byte b = bytes.get();
-      if (b != 0x25) {
-        output.put(b);
+  /**
+   * Decodes the chars in {@code [start, end)} of the input as an application/x-www-form-urlencoded
+   * name or value: {@code +} is a space, and the rest is percent-decoded as UTF-8.
+   */
+  static String formDecode(String input, int start, int end) {
+    int i = start;
+    while (i < end && input.charAt(i) != '%' && input.charAt(i) != '+') {
+      i++;
+    }
+    if (i == end) {
+      return input.substring(start, end);
+    }
+
+    byte[] bytes = input.substring(start, end).getBytes(StandardCharsets.UTF_8);
+    for (int b = 0; b < bytes.length; b++) {
+      if (bytes[b] == '+') {
+        bytes[b] = ' ';
+      }
+    }
+    int length = percentDecode(bytes, 0, bytes.length, bytes, 0);
+    return new String(bytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Percent-decodes the bytes in {@code [start, end)} of the input into the output starting at
+   * {@code offset}. Decoding never grows the bytes, so the output needs room for at most
+   * {@code end - start} of them, and it can be the input itself as long as {@code offset} isn't
+   * after {@code start}.
+   *
+   * @return the number of bytes written
+   */
+  public static int percentDecode(byte[] input, int start, int end, byte[] output, int offset) {
+    Objects.checkFromToIndex(start, end, input.length);
+    int o = offset;
+    int i = start;
+    while (i < end) {
+      byte b = input[i];
+      int decoded;
+      if (b == '%' && end - i >= 3 && (decoded = decodeHexPair(input[i + 1], input[i + 2])) >= 0) {
+        output[o++] = (byte) decoded;
+        i += 3;
+      } else {
+        output[o++] = b;
+        i++;
+      }
+    }
+    return o - offset;
+  }
+
+  /**
+   * Percent-decodes the bytes remaining in the input into the output, advancing both.
+   *
+   * @throws java.nio.BufferOverflowException if the output runs out of room
+   */
+  public static void percentDecode(ByteBuffer input, ByteBuffer output) {
+    if (
+        input.hasArray() &&
+            output.hasArray() &&
+            input.array() != output.array() &&
+            output.remaining() >= input.remaining()
+    ) {
+      int start = input.arrayOffset() + input.position();
+      int length = percentDecode(
+          input.array(),
+          start,
+          start + input.remaining(),
+          output.array(),
+          output.arrayOffset() + output.position()
+      );
+      input.position(input.limit());
+      output.position(output.position() + length);
+      return;
+    }
+
+    while (input.hasRemaining()) {
+      byte b = input.get();
+      int decoded;
+      if (
+          b == '%' &&
+              input.remaining() >= 2 &&
+              (decoded = decodeHexPair(input.get(input.position()), input.get(input.position() + 1))) >= 0
+      ) {
+        output.put((byte) decoded);
+        input.position(input.position() + 2);
       } else {
-        bytes.mark();
-
-        byte[] nextTwoBytes = new byte[2];
-        try {
-          bytes.get(nextTwoBytes, 0, 2);
-        } catch (BufferUnderflowException e) {
-          output.put(b);
-          continue;
-        }
-
-        byte nextByte1 = nextTwoBytes[0];
-        byte nextByte2 = nextTwoBytes[1];
-
-        if (!(isUtf8HexDigit(nextByte1) && isUtf8HexDigit(nextByte2))) {
-          output.put(b);
-          bytes.reset();
-        } else {
-          byte bytePoint = (byte) (
-              Integer.parseInt(
-                  StandardCharsets.UTF_8.decode(ByteBuffer.wrap(nextTwoBytes)).toString(),
-              16
-              )
-          );
-          output.put(bytePoint);
-        }
+        output.put(b);
       }
     }
-    return output.flip();
   }
 
-  private static boolean isUtf8HexDigit(byte b) {
-    return (b >= 0x30 && b <= 0x39) ||
-        (b >= 0x41 && b <= 0x46) ||
-        (b >= 0x61 && b <= 0x66);
+  /**
+   * @return the value of the hex digit byte, or -1 if it isn't one
+   */
+  static int hexValue(byte b) {
+    return HEX_VALUES[b & 0xFF];
+  }
+
+  /**
+   * @return the byte the two hex digits spell out, or -1 if they aren't both hex digits
+   */
+  private static int decodeHexPair(byte high, byte low) {
+    // the table lookups are negative for anything that isn't a hex digit, so is the result
+    return (HEX_VALUES[high & 0xFF] << 4) | HEX_VALUES[low & 0xFF];
   }
 }
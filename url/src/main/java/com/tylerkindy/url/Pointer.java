@@ -18,165 +18,147 @@ package com.tylerkindy.url;
 
 import static com.tylerkindy.url.CharacterUtils.isAsciiAlpha;
 
-import com.tylerkindy.url.Pointer.PointedAt.CodePoint;
-import com.tylerkindy.url.Pointer.PointedAt.Eof;
-import com.tylerkindy.url.Pointer.PointedAt.Nowhere;
-import com.tylerkindy.url.Pointer.PrefixPattern.AsciiHexDigit;
-import com.tylerkindy.url.Pointer.PrefixPattern.Literal;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.IntSupplier;
-import java.util.function.Predicate;
-
-final class Pointer {
-  private final String s;
-  private final int codePointLength;
-
-  /** The index of the current code point. */
-  private int codePointIndex;
-  /** The direct index into the string's char array. */
-  private int codeUnitIndex;
-
-  Pointer(String s) {
-    this.s = s;
-    this.codePointLength = s.codePointCount(0, s.length());
+/**
+ * A cursor over the code points of a range of a char sequence. The current code point is exposed as a primitive
+ * {@code int}, with {@link #EOF} and {@link #NOWHERE} as sentinels for the positions past the end
+ * and before the start of the input, so moving and reading never allocate.
+ */
+final class Pointer implements InputPointer {
+  /** The code point reported when the pointer is past the end of the input. */
+  static final int EOF = -1;
+  /** The code point reported when the pointer is before the start of the input. */
+  static final int NOWHERE = -2;
 
-    codePointIndex = 0;
-    codeUnitIndex = 0;
-  }
+  /** Matches the two ASCII hex digits of a percent-encoded byte. */
+  static final Prefix TWO_ASCII_HEX_DIGITS = Prefix.compile("%d%d");
 
-  public PointedAt pointedAt() {
-    if (isEof()) {
-      return new Eof();
-    }
-    if (codePointIndex == -1) {
-      return new Nowhere();
-    }
-    return new CodePoint(getCurrentCodePoint());
-  }
+  private CharSequence s;
+  private int start;
+  private int end;
 
-  @Deprecated
-  public int getCurrentCodePoint() {
-    return s.codePointAt(codeUnitIndex);
-  }
+  /** The direct index into the char sequence, or start - 1 when pointing nowhere. */
+  private int codeUnitIndex;
 
-  public void increase() {
-    increase(1);
+  Pointer() {
+    this("");
   }
 
-  public void increase(int numCodePoints) {
-    move(numCodePoints);
+  Pointer(String s) {
+    this(s, 0, s.length());
   }
 
-  public void decrease() {
-    decrease(1);
+  Pointer(CharSequence s, int start, int end) {
+    reset(s, start, end);
   }
 
-  public void decrease(int numCodePoints) {
-    move(-1 * numCodePoints);
+  /**
+   * Points this at the start of {@code [start, end)} of a new char sequence, so it can be reused.
+   *
+   * @return this pointer
+   */
+  Pointer reset(CharSequence s, int start, int end) {
+    this.s = s;
+    this.start = start;
+    this.end = end;
+    codeUnitIndex = start;
+    return this;
   }
 
-  private void move(int numCodePoints) {
-    if (numCodePoints == 0) {
-      return;
+  @Override
+  public int codePoint() {
+    if (codeUnitIndex >= end) {
+      return EOF;
+    }
+    if (codeUnitIndex < start) {
+      return NOWHERE;
     }
-    
-    final IntSupplier nextCodePoint;
-    final IndexUpdater indexUpdater;
-    final Predicate<Pointer> isAtEnd;
-    if (numCodePoints > 0) {
-      nextCodePoint = this::getCurrentCodePoint;
-      indexUpdater = (index, amount) -> index + amount;
-      isAtEnd = Pointer::isEof;
-    } else {
-      nextCodePoint = () -> s.codePointBefore(codeUnitIndex);
-      indexUpdater = (index, amount) -> index - amount;
-      isAtEnd = p -> p.codePointIndex == -1;
-      numCodePoints *= -1;
-    }
-
-    for (int i = 0; i < numCodePoints; i++) {
-      if (isAtEnd.test(this)) {
-        return;
-      }
-
-      int newCodePointIndex = indexUpdater.update(codePointIndex, 1);
-      if (newCodePointIndex == -1) {
-        codePointIndex = -1;
-        codeUnitIndex = -1;
-        continue;
-      }
-      if (newCodePointIndex == 0) {
-        codePointIndex = 0;
-        codeUnitIndex = 0;
-        continue;
-      }
-
-      int codePoint = nextCodePoint.getAsInt();
 
-      codePointIndex = newCodePointIndex;
-      if (codePoint <= 0xFFFF) {
-        // Basic Multilingual Plane, made of one char
-        codeUnitIndex = indexUpdater.update(codeUnitIndex, 1);
-      } else {
-        // supplementary character, made of two chars
-        codeUnitIndex = indexUpdater.update(codeUnitIndex, 2);
+    char c = s.charAt(codeUnitIndex);
+    if (Character.isHighSurrogate(c) && codeUnitIndex + 1 < end) {
+      char low = s.charAt(codeUnitIndex + 1);
+      if (Character.isLowSurrogate(low)) {
+        return Character.toCodePoint(c, low);
       }
     }
+    return c;
   }
 
-  @Deprecated
-  public boolean isEof() {
-    return codePointIndex >= codePointLength;
+  @Override
+  public void increase() {
+    if (codeUnitIndex >= end) {
+      return;
+    }
+    if (codeUnitIndex < start) {
+      codeUnitIndex = start;
+      return;
+    }
+
+    int next = codeUnitIndex + 1;
+    if (
+        Character.isHighSurrogate(s.charAt(codeUnitIndex)) &&
+            next < end &&
+            Character.isLowSurrogate(s.charAt(next))
+    ) {
+      // supplementary character, made of two chars
+      next++;
+    }
+    codeUnitIndex = next;
   }
 
-  public boolean doesRemainingStartWith(String prefix) {
-    List<PrefixPattern> patterns = new ArrayList<>(prefix.length());
-    for (int i = 0; i < prefix.length(); i++) {
-      char prefixChar = prefix.charAt(i);
-
-      final PrefixPattern prefixPattern;
-      if (prefixChar == '%') {
-        char patternChar = prefix.charAt(++i);
-        prefixPattern = switch (patternChar) {
-          case 'd' -> new AsciiHexDigit();
-          default -> throw new IllegalArgumentException("Unexpected prefix pattern char: " + patternChar);
-        };
-      } else {
-        prefixPattern = new Literal(prefixChar);
-      }
+  @Override
+  public void decrease() {
+    if (codeUnitIndex < start) {
+      return;
+    }
+    if (codeUnitIndex == start) {
+      codeUnitIndex = start - 1;
+      return;
+    }
 
-      patterns.add(prefixPattern);
+    int previous = codeUnitIndex - 1;
+    if (
+        Character.isLowSurrogate(s.charAt(previous)) &&
+            previous > start &&
+            Character.isHighSurrogate(s.charAt(previous - 1))
+    ) {
+      // supplementary character, made of two chars
+      previous--;
     }
+    codeUnitIndex = previous;
+  }
 
-    int remainingLength = s.length() - codeUnitIndex - 1;
-    if (remainingLength < patterns.size()) {
+  @Override
+  public boolean doesRemainingStartWith(String prefix) {
+    int remainingStart = codeUnitIndex + 1;
+    if (end - remainingStart < prefix.length()) {
       return false;
     }
 
-    for (int i = 0; i < patterns.size(); i++) {
-      char sChar = s.charAt(codeUnitIndex + i + 1);
-      PrefixPattern prefixPattern = patterns.get(i);
-
-      if (!prefixPattern.matches(sChar)) {
+    for (int i = 0; i < prefix.length(); i++) {
+      if (s.charAt(remainingStart + i) != prefix.charAt(i)) {
         return false;
       }
     }
-
     return true;
   }
 
+  @Override
+  public boolean doesRemainingStartWith(Prefix prefix) {
+    return prefix.matches(s, codeUnitIndex + 1, end);
+  }
+
+  @Override
   public boolean doesRemainingStartWithWindowsDriveLetter() {
-    int remainingLength = s.length() - codeUnitIndex;
+    int remainingLength = end - codeUnitIndex;
     if (remainingLength < 2) {
       return false;
     }
-    if (!isAsciiAlpha(s.codePointAt(codeUnitIndex))) {
+    if (!isAsciiAlpha(s.charAt(codeUnitIndex))) {
       return false;
     }
 
-    int secondCodePoint = s.codePointAt(codeUnitIndex + 1);
-    if (secondCodePoint != ':' && secondCodePoint != '|') {
+    char second = s.charAt(codeUnitIndex + 1);
+    if (second != ':' && second != '|') {
       return false;
     }
 
@@ -184,59 +166,119 @@ final class Pointer {
       return true;
     }
 
-    int thirdCodePoint = s.codePointAt(codeUnitIndex + 2);
-    return thirdCodePoint == '/' ||
-        thirdCodePoint == '\\' ||
-        thirdCodePoint == '?' ||
-        thirdCodePoint == '#';
+    char third = s.charAt(codeUnitIndex + 2);
+    return third == '/' ||
+        third == '\\' ||
+        third == '?' ||
+        third == '#';
   }
 
+  @Override
   public void reset() {
-    codePointIndex = 0;
-    codeUnitIndex = 0;
+    codeUnitIndex = start;
   }
 
   @Override
-  public String toString() {
-    PointedAt pointedAt = pointedAt();
-    if (pointedAt instanceof CodePoint cp) {
-      return "'" + Character.toString(cp.codePoint()) + "'";
+  public void appendPercentEncoded(StringBuilder output, CharacterSet percentEncodeSet) {
+    PercentEncoder.appendUtf8PercentEncoded(output, codePoint(), percentEncodeSet);
+  }
+
+  @Override
+  public boolean appendRun(StringBuilder output, boolean[] copyTable) {
+    int runEnd = codeUnitIndex;
+    while (runEnd < end) {
+      char c = s.charAt(runEnd);
+      if (c >= copyTable.length || !copyTable[c]) {
+        break;
+      }
+      runEnd++;
     }
-    if (pointedAt instanceof Eof) {
+
+    if (runEnd == codeUnitIndex) {
+      return false;
+    }
+    output.append(s, codeUnitIndex, runEnd);
+    codeUnitIndex = runEnd - 1;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    int codePoint = codePoint();
+    if (codePoint == EOF) {
       return "EOF";
     }
-    if (pointedAt instanceof Nowhere) {
+    if (codePoint == NOWHERE) {
       return "Nowhere";
     }
-    throw new IllegalStateException("Unknown PointedAt class: " + pointedAt);
+    return "'" + Character.toString(codePoint) + "'";
   }
 
-  @FunctionalInterface
-  private interface IndexUpdater {
-    int update(int index, int amount);
-  }
+  /**
+   * A prefix pattern compiled once up front. Pattern strings are literal, except that
+   * {@code %d} matches any ASCII hex digit.
+   */
+  static final class Prefix {
+    private final char[] literals;
+    private final boolean[] asciiHexDigits;
+
+    private Prefix(char[] literals, boolean[] asciiHexDigits) {
+      this.literals = literals;
+      this.asciiHexDigits = asciiHexDigits;
+    }
 
-  sealed interface PrefixPattern {
-    boolean matches(char c);
+    static Prefix compile(String pattern) {
+      StringBuilder literals = new StringBuilder(pattern.length());
+      boolean[] asciiHexDigits = new boolean[pattern.length()];
+
+      for (int i = 0; i < pattern.length(); i++) {
+        char patternChar = pattern.charAt(i);
+        if (patternChar == '%') {
+          char patternType = pattern.charAt(++i);
+          if (patternType != 'd') {
+            throw new IllegalArgumentException("Unexpected prefix pattern char: " + patternType);
+          }
+          asciiHexDigits[literals.length()] = true;
+          literals.append(patternType);
+        } else {
+          literals.append(patternChar);
+        }
+      }
 
-    record AsciiHexDigit() implements PrefixPattern {
-      @Override
-      public boolean matches(char c) {
-        return CharacterUtils.isAsciiHexDigit(c);
+      char[] literalChars = literals.toString().toCharArray();
+      boolean[] trimmedHexDigits = new boolean[literalChars.length];
+      System.arraycopy(asciiHexDigits, 0, trimmedHexDigits, 0, literalChars.length);
+      return new Prefix(literalChars, trimmedHexDigits);
+    }
+
+    boolean matches(CharSequence s, int start, int end) {
+      if (start < 0 || end - start < literals.length) {
+        return false;
       }
+
+      for (int i = 0; i < literals.length; i++) {
+        if (!matches(i, s.charAt(start + i))) {
+          return false;
+        }
+      }
+      return true;
     }
 
-    record Literal(char c) implements PrefixPattern {
-      @Override
-      public boolean matches(char c) {
-        return c == this.c;
+    boolean matches(Utf8Pointer bytes, int start, int end) {
+      if (end - start < literals.length) {
+        return false;
       }
+
+      for (int i = 0; i < literals.length; i++) {
+        if (!matches(i, bytes.byteAt(start + i) & 0xFF)) {
+          return false;
+        }
+      }
+      return true;
     }
-  }
 
-  public sealed interface PointedAt {
-    record Nowhere() implements PointedAt {}
-    record Eof() implements PointedAt {}
-    record CodePoint(int codePoint) implements PointedAt {}
+    private boolean matches(int index, int c) {
+      return asciiHexDigits[index] ? CharacterUtils.isAsciiHexDigit(c) : c == literals[index];
+    }
   }
 }
@@ -16,6 +16,7 @@
 
 package com.tylerkindy.url;
 
+import java.util.Arrays;
 import java.util.PrimitiveIterator.OfInt;
 
 /**
@@ -36,70 +37,101 @@ final class Punycode {
   }
 
   /**
+   * Follows the encoding procedure, but rather than rescanning the whole label for each code point
+   * it handles, it counts the smaller code points before each occurrence with a {@link
+   * PositionTree}, so it takes O(n log n) time rather than O(n²) on long labels.
+   *
    * @see <a href="https://www.rfc-editor.org/rfc/rfc3492.html#section-6.3">Punycode encoding procedure</a>
    */
   public static String encode(String label) {
-    int n = INITIAL_N;
-    int delta = 0;
-    int bias = INITIAL_BIAS;
+    int[] codePoints = label.codePoints().toArray();
     StringBuilder output = new StringBuilder(label.length());
 
-    int b = 0;
-    for (int codePoint : new CodePointIterable(label)) {
+    // each non-basic code point, packed above its position so they sort by code point, then position
+    long[] nonBasic = new long[codePoints.length];
+    int nonBasicCount = 0;
+    PositionTree smaller = new PositionTree(codePoints.length);
+    for (int position = 0; position < codePoints.length; position++) {
+      int codePoint = codePoints[position];
       if (isBasic(codePoint)) {
         output.appendCodePoint(codePoint);
-        b += 1;
+        smaller.add(position);
+      } else {
+        nonBasic[nonBasicCount++] = ((long) codePoint << 32) | position;
       }
     }
+    Arrays.sort(nonBasic, 0, nonBasicCount);
 
+    int b = codePoints.length - nonBasicCount;
     if (b > 0) {
       output.appendCodePoint(DELIMITER);
     }
 
+    int n = INITIAL_N;
+    int delta = 0;
+    int bias = INITIAL_BIAS;
     int h = b;
-    while (h < label.length()) {
-      final int finalN = n;
-      int m = label.codePoints()
-          .filter(codePoint -> Integer.compareUnsigned(codePoint, finalN) >= 0)
-          .min()
-          .orElseThrow();
+
+    for (int j = 0; j < nonBasicCount; ) {
+      int m = (int) (nonBasic[j] >>> 32);
       delta = Math.addExact(delta, Math.multiplyExact(m - n, h + 1));
       n = m;
 
-      for (int c : new CodePointIterable(label)) {
-        if (c < n) {
-          delta = Math.addExact(delta, 1);
-        } else if (c == n) {
-          int q = delta;
-          int k = BASE;
-
-          while (true) {
-            int t = Math.min(Math.max(k - bias, T_MIN), T_MAX);
-            if (q < t) {
-              break;
-            }
-
-            int digit = t + ((q - t) % (BASE - t));
-            output.appendCodePoint(getCodePointForDigitValue(digit));
-            q = (q - t) / (BASE - t);
-
-            k += BASE;
-          }
-
-          output.appendCodePoint(getCodePointForDigitValue(q));
-          bias = adapt(delta, h + 1, h == b);
-          delta = 0;
-          h += 1;
-        }
+      // every code point below n has been handled, so h of them are counted over the whole label
+      int smallerCount = h;
+      int smallerBefore = 0;
+      int first = j;
+      for (; j < nonBasicCount && (int) (nonBasic[j] >>> 32) == n; j++) {
+        int position = (int) nonBasic[j];
+        int smallerBeforePosition = smaller.countBefore(position);
+        delta = Math.addExact(delta, smallerBeforePosition - smallerBefore);
+        smallerBefore = smallerBeforePosition;
+
+        appendVariableLengthInteger(output, delta, bias);
+        bias = adapt(delta, h + 1, h == b);
+        delta = 0;
+        h += 1;
+      }
+      delta = Math.addExact(delta, smallerCount - smallerBefore);
+
+      for (int k = first; k < j; k++) {
+        smaller.add((int) nonBasic[k]);
       }
-      delta += 1;
+
+      delta = Math.addExact(delta, 1);
       n += 1;
     }
 
     return output.toString();
   }
 
+  private static void appendVariableLengthInteger(StringBuilder output, int delta, int bias) {
+    int q = delta;
+    int k = BASE;
+
+    while (true) {
+      int t = Math.min(Math.max(k - bias, T_MIN), T_MAX);
+      if (q < t) {
+        break;
+      }
+
+      int digit = t + ((q - t) % (BASE - t));
+      output.appendCodePoint(getCodePointForDigitValue(digit));
+      q = (q - t) / (BASE - t);
+
+      k += BASE;
+    }
+
+    output.appendCodePoint(getCodePointForDigitValue(q));
+  }
+
   /**
+   * Follows the decoding procedure, but rather than inserting each code point into the output as
+   * it's decoded, it records where each was inserted, then places them all at the end. Working
+   * backwards from the last insertion, each code point's final position is the free slot at its
+   * insertion index, which a {@link PositionTree} finds in O(log n) time, so decoding a long label
+   * takes O(n log n) time rather than O(n²).
+   *
    * @see <a href="https://www.rfc-editor.org/rfc/rfc3492.html#section-6.2">Punycode decoding procedure</a>
    */
   public static String decode(String label) {
@@ -107,8 +139,8 @@ final class Punycode {
     int i = 0;
     int bias = INITIAL_BIAS;
 
-    StringBuilder output = new StringBuilder(label.length());
-    int outputCodePointLength = 0;
+    int[] basic = new int[label.length()];
+    int basicLength = 0;
     OfInt iterator = label.codePoints().iterator();
 
     int lastDelimiterIndex = label.lastIndexOf(Character.toString(DELIMITER));
@@ -121,13 +153,17 @@ final class Punycode {
               "Non-basic code point " + Character.getName(codePoint));
         }
 
-        output.appendCodePoint(codePoint);
-        outputCodePointLength += 1;
+        basic[basicLength++] = codePoint;
       }
       iterator.nextInt();
     }
 
+    int[] inserted = new int[label.length()];
+    int[] insertedAt = new int[label.length()];
+    int insertedLength = 0;
+
     while (iterator.hasNext()) {
+      int outputCodePointLength = basicLength + insertedLength;
       int oldI = i;
       int w = 1;
 
@@ -155,15 +191,96 @@ final class Punycode {
       );
       n = Math.addExact(n, i / (outputCodePointLength + 1));
       i = i % (outputCodePointLength + 1);
-      output.insert(
-          output.offsetByCodePoints(0, i),
-          Character.toString(n)
-      );
-      outputCodePointLength += 1;
+      if (n > Character.MAX_CODE_POINT) {
+        throw new IllegalArgumentException("Decoded code point out of range: " + n);
+      }
+
+      inserted[insertedLength] = n;
+      insertedAt[insertedLength] = i;
+      insertedLength += 1;
       i += 1;
     }
 
-    return output.toString();
+    int outputLength = basicLength + insertedLength;
+    int[] output = new int[outputLength];
+    boolean[] filled = new boolean[outputLength];
+    PositionTree free = PositionTree.full(outputLength);
+    for (int j = insertedLength - 1; j >= 0; j--) {
+      int position = free.removeNth(insertedAt[j]);
+      output[position] = inserted[j];
+      filled[position] = true;
+    }
+
+    // the basic code points keep their order in whatever slots are left
+    int nextBasic = 0;
+    for (int position = 0; position < outputLength; position++) {
+      if (!filled[position]) {
+        output[position] = basic[nextBasic++];
+      }
+    }
+
+    return new String(output, 0, outputLength);
+  }
+
+  /**
+   * A Fenwick tree over the positions of a label, counting which of them are marked.
+   */
+  private static final class PositionTree {
+    private final int[] tree;
+
+    PositionTree(int size) {
+      tree = new int[size + 1];
+    }
+
+    /**
+     * @return a tree with every position marked
+     */
+    static PositionTree full(int size) {
+      PositionTree positions = new PositionTree(size);
+      for (int i = 1; i <= size; i++) {
+        positions.tree[i] = i & -i;
+      }
+      return positions;
+    }
+
+    void add(int position) {
+      for (int i = position + 1; i < tree.length; i += i & -i) {
+        tree[i]++;
+      }
+    }
+
+    /**
+     * @return how many marked positions come before the given one
+     */
+    int countBefore(int position) {
+      int count = 0;
+      for (int i = position; i > 0; i -= i & -i) {
+        count += tree[i];
+      }
+      return count;
+    }
+
+    /**
+     * Unmarks the marked position with the given index among the marked positions.
+     *
+     * @return the position
+     */
+    int removeNth(int index) {
+      int position = 0;
+      int remaining = index + 1;
+      for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+        int next = position + step;
+        if (next < tree.length && tree[next] < remaining) {
+          position = next;
+          remaining -= tree[next];
+        }
+      }
+
+      for (int i = position + 1; i < tree.length; i += i & -i) {
+        tree[i]--;
+      }
+      return position;
+    }
   }
 
   private static boolean isBasic(int codePoint) {
@@ -16,22 +16,50 @@
 
 package com.tylerkindy.url;
 
+import com.tylerkindy.url.Host.Domain;
+import com.tylerkindy.url.Host.Empty;
 import com.tylerkindy.url.UrlParseResult.Failure;
 import com.tylerkindy.url.UrlParseResult.Success;
 import com.tylerkindy.url.UrlParseResult.SuccessWithErrors;
 import com.tylerkindy.url.UrlPath.NonOpaque;
+import com.tylerkindy.url.UrlPath.Opaque;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
+/**
+ * A parsed URL. It's stored the way it serializes, as a single href string, along with the offsets
+ * of each component within it, so the component accessors are views over the href.
+ */
 public final class Url {
-  private final String scheme;
-  private final String username;
-  private final String password;
-  private final Host host;
-  private final Character port;
-  private final UrlPath path;
-  private final String query;
-  private final String fragment;
+  private final String href;
+  /** The index just after the scheme's trailing {@code :}. */
+  private final int protocolEnd;
+  private final int usernameEnd;
+  private final int hostStart;
+  private final int hostEnd;
+  /** The port, or -1 if there isn't one. */
+  private final int port;
+  private final int pathStart;
+  /** The index of the {@code ?} starting the query, or -1 if there isn't one. */
+  private final int queryStart;
+  /** The index of the {@code #} starting the fragment, or -1 if there isn't one. */
+  private final int fragmentStart;
+  private final HostKind hostKind;
+  /** The host if it's an IP address, kept as parsed so it needn't be parsed again from the href. */
+  private final Host.IpAddress ipAddress;
+  private final boolean hasOpaquePath;
+
+  // Decoded components, computed on first access. Every value is immutable and safely published
+  // through its own final fields, so a racing reader at worst decodes the same value again.
+  private String decodedUsername;
+  private List<String> decodedPathSegments;
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private Optional<String> decodedQuery;
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private Optional<String> decodedFragment;
+  private UrlSearchParams searchParams;
 
   public static UrlParseResult parse(String url) {
     return UrlParser.INSTANCE.parse(url, Optional.empty());
@@ -49,6 +77,138 @@ public final class Url {
     return extractOrThrow(url, parse(url, base));
   }
 
+  public static UrlParseResult parse(String url, ParseOptions options) {
+    return UrlParser.INSTANCE.parse(url, Optional.empty(), options);
+  }
+
+  public static UrlParseResult parse(String url, Url base, ParseOptions options) {
+    return UrlParser.INSTANCE.parse(url, Optional.of(base), options);
+  }
+
+  /**
+   * Parses the URL, looking its host up in the given cache before parsing it.
+   */
+  public static UrlParseResult parse(String url, HostCache hostCache) {
+    return parse(url, ParseOptions.builder().setHostCache(hostCache).build());
+  }
+
+  public static Url parseOrThrow(String url, HostCache hostCache) {
+    return extractOrThrow(url, parse(url, hostCache));
+  }
+
+  /**
+   * Parses the URL against a base, looking its host up in the given cache before parsing it.
+   */
+  public static UrlParseResult parse(String url, Url base, HostCache hostCache) {
+    return parse(url, base, ParseOptions.builder().setHostCache(hostCache).build());
+  }
+
+  public static Url parseOrThrow(String url, Url base, HostCache hostCache) {
+    return extractOrThrow(url, parse(url, base, hostCache));
+  }
+
+  /**
+   * Parses the URL from the chars in {@code [start, end)} of the input, without copying them into
+   * a string first.
+   */
+  public static UrlParseResult parse(CharSequence input, int start, int end) {
+    Objects.checkFromToIndex(start, end, input.length());
+    return UrlParser.INSTANCE.parse(input, start, end, Optional.empty(), ParseOptions.defaults());
+  }
+
+  /**
+   * Parses the URL against a base from the chars in {@code [start, end)} of the input, without
+   * copying them into a string first.
+   */
+  public static UrlParseResult parse(CharSequence input, int start, int end, Url base) {
+    Objects.checkFromToIndex(start, end, input.length());
+    return UrlParser.INSTANCE.parse(input, start, end, Optional.of(base), ParseOptions.defaults());
+  }
+
+  /**
+   * Checks whether the input parses as a URL, without building it.
+   */
+  public static boolean canParse(CharSequence input) {
+    return UrlParser.INSTANCE.canParse(input, 0, input.length(), Optional.empty());
+  }
+
+  /**
+   * Checks whether the input parses as a URL against a base, without building it.
+   */
+  public static boolean canParse(CharSequence input, Url base) {
+    return UrlParser.INSTANCE.canParse(input, 0, input.length(), Optional.of(base));
+  }
+
+  /**
+   * Parses just the URL's host, skipping the rest of the URL after it.
+   *
+   * @return the host, or empty if the input doesn't parse as a URL or it has no host
+   */
+  public static Optional<Host> parseHost(CharSequence input) {
+    return UrlParser.INSTANCE.parseHost(input, 0, input.length(), Optional.empty(), ParseOptions.defaults());
+  }
+
+  /**
+   * Parses just the host of the URL against a base, skipping the rest of the URL after it.
+   *
+   * @return the host, or empty if the input doesn't parse as a URL or it has no host
+   */
+  public static Optional<Host> parseHost(CharSequence input, Url base) {
+    return UrlParser.INSTANCE.parseHost(input, 0, input.length(), Optional.of(base), ParseOptions.defaults());
+  }
+
+  /**
+   * Parses just the URL's host, looking it up in the given cache before parsing it.
+   *
+   * @return the host, or empty if the input doesn't parse as a URL or it has no host
+   */
+  public static Optional<Host> parseHost(CharSequence input, HostCache hostCache) {
+    return UrlParser.INSTANCE.parseHost(
+        input,
+        0,
+        input.length(),
+        Optional.empty(),
+        ParseOptions.builder().setHostCache(hostCache).build()
+    );
+  }
+
+  /**
+   * Parses the URL, reporting its components to the visitor instead of building a {@code Url}.
+   *
+   * @return whether the input parsed; nothing is reported if it didn't
+   */
+  public static boolean parse(CharSequence input, UrlVisitor visitor) {
+    return UrlParser.INSTANCE.parse(input, 0, input.length(), Optional.empty(), ParseOptions.defaults(), visitor);
+  }
+
+  /**
+   * Parses the URL against a base, reporting its components to the visitor instead of building a
+   * {@code Url}.
+   *
+   * @return whether the input parsed; nothing is reported if it didn't
+   */
+  public static boolean parse(CharSequence input, Url base, UrlVisitor visitor) {
+    return UrlParser.INSTANCE.parse(input, 0, input.length(), Optional.of(base), ParseOptions.defaults(), visitor);
+  }
+
+  /**
+   * Parses the URL from {@code length} bytes of UTF-8 starting at {@code offset}, without decoding
+   * them into a string first.
+   */
+  public static UrlParseResult parse(byte[] bytes, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, bytes.length);
+    return UrlParser.INSTANCE.parse(bytes, offset, offset + length, Optional.empty(), ParseOptions.defaults());
+  }
+
+  /**
+   * Parses the URL from the UTF-8 bytes remaining in the buffer, without decoding them into a
+   * string or copying them out of a direct or memory-mapped buffer first. The buffer's position is
+   * left unchanged.
+   */
+  public static UrlParseResult parse(ByteBuffer bytes) {
+    return UrlParser.INSTANCE.parse(bytes, Optional.empty(), ParseOptions.defaults());
+  }
+
   private static Url extractOrThrow(String urlStr, UrlParseResult result) {
     if (result instanceof Success s) {
       return s.url();
@@ -63,95 +223,274 @@ public final class Url {
   }
 
   Url(String scheme, String username, String password, Host host, Character port, UrlPath path, String query, String fragment) {
-    this.scheme = scheme;
-    this.username = username;
-    this.password = password;
-    this.host = host;
-    this.port = port;
-    this.path = path;
-    this.query = query;
-    this.fragment = fragment;
+    this(serialize(scheme, username, password, host, port, path, query, fragment));
+  }
+
+  Url(UrlSerializer serialized) {
+    this.href = serialized.output.toString();
+    this.protocolEnd = serialized.protocolEnd;
+    this.usernameEnd = serialized.usernameEnd;
+    this.hostStart = serialized.hostStart;
+    this.hostEnd = serialized.hostEnd;
+    this.hostKind = serialized.host == null ? HostKind.NONE : HostKind.of(serialized.host);
+    this.ipAddress = serialized.host instanceof Host.IpAddress ip ? ip : null;
+    this.port = serialized.port;
+    this.pathStart = serialized.pathStart < 0 ? href.length() : serialized.pathStart;
+    this.hasOpaquePath = serialized.hasOpaquePath;
+    this.queryStart = serialized.queryStart;
+    // TODO: allow excluding fragment as per spec?
+    this.fragmentStart = serialized.fragmentStart;
+  }
+
+  private Url(Url url, String href, int queryStart, int fragmentStart) {
+    this.href = href;
+    this.protocolEnd = url.protocolEnd;
+    this.usernameEnd = url.usernameEnd;
+    this.hostStart = url.hostStart;
+    this.hostEnd = url.hostEnd;
+    this.hostKind = url.hostKind;
+    this.ipAddress = url.ipAddress;
+    this.port = url.port;
+    this.pathStart = url.pathStart;
+    this.hasOpaquePath = url.hasOpaquePath;
+    this.queryStart = queryStart;
+    this.fragmentStart = fragmentStart;
+  }
+
+  /**
+   * @return a copy of this URL with its query replaced, or removed if it's null
+   */
+  Url withQuery(String query) {
+    int pathEnd = pathEnd();
+    if (hasOpaquePath && query == null && fragmentStart < 0) {
+      // strip trailing spaces from an opaque path, now that nothing follows it
+      while (pathEnd > pathStart && href.charAt(pathEnd - 1) == ' ') {
+        pathEnd--;
+      }
+    }
+
+    StringBuilder output = new StringBuilder(href.length() + (query == null ? 0 : query.length() + 1));
+    output.append(href, 0, pathEnd);
+    int newQueryStart = -1;
+    if (query != null) {
+      newQueryStart = output.length();
+      output.append('?').append(query);
+    }
+    int newFragmentStart = -1;
+    if (fragmentStart >= 0) {
+      newFragmentStart = output.length();
+      output.append(href, fragmentStart, href.length());
+    }
+    return new Url(this, output.toString(), newQueryStart, newFragmentStart);
+  }
+
+  private static UrlSerializer serialize(
+      String scheme,
+      String username,
+      String password,
+      Host host,
+      Character port,
+      UrlPath path,
+      String query,
+      String fragment
+  ) {
+    UrlSerializer serializer = new UrlSerializer();
+    UrlSerializer.visit(serializer, scheme, username, password, host, port, path, query, fragment);
+    return serializer;
   }
 
   public String scheme() {
-    return scheme;
+    return href.substring(0, protocolEnd - 1);
+  }
+
+  boolean hasScheme(String scheme) {
+    return protocolEnd - 1 == scheme.length() && href.startsWith(scheme);
   }
 
   public String username() {
-    return username;
+    if (hostKind == HostKind.NONE) {
+      return "";
+    }
+    return href.substring(protocolEnd + 2, usernameEnd);
   }
 
   public String password() {
-    return password;
+    // the password sits between the username's trailing ':' and the '@' before the host
+    if (hostKind == HostKind.NONE || hostStart - 1 <= usernameEnd) {
+      return "";
+    }
+    return href.substring(usernameEnd + 1, hostStart - 1);
+  }
+
+  /**
+   * @return the username, percent-decoded
+   */
+  public String decodedUsername() {
+    String decoded = decodedUsername;
+    if (decoded == null) {
+      decoded = PercentEncoder.percentDecode(username());
+      decodedUsername = decoded;
+    }
+    return decoded;
   }
 
   public Optional<Host> host() {
-    return Optional.ofNullable(host);
+    return switch (hostKind) {
+      case NONE -> Optional.empty();
+      case DOMAIN -> Optional.of(new Domain(href.substring(hostStart, hostEnd)));
+      case IP_ADDRESS -> Optional.of(ipAddress);
+      case OPAQUE -> Optional.of(new Host.Opaque(href.substring(hostStart, hostEnd)));
+      case EMPTY -> Optional.of(new Empty());
+    };
   }
 
   public Optional<Character> port() {
-    return Optional.ofNullable(port);
+    return port < 0 ? Optional.empty() : Optional.of((char) port);
   }
 
   public UrlPath path() {
-    return path;
+    int pathEnd = pathEnd();
+
+    if (hasOpaquePath) {
+      return new Opaque(href.substring(pathStart, pathEnd));
+    }
+    return new NonOpaque(PathSegments.of(href, pathStart, pathEnd));
+  }
+
+  /**
+   * @return the path's segments, each percent-decoded; an opaque path is a single segment
+   */
+  public List<String> decodedPathSegments() {
+    List<String> decoded = decodedPathSegments;
+    if (decoded == null) {
+      decoded = decodePathSegments();
+      decodedPathSegments = decoded;
+    }
+    return decoded;
+  }
+
+  private List<String> decodePathSegments() {
+    int pathEnd = pathEnd();
+    if (hasOpaquePath) {
+      return List.of(PercentEncoder.percentDecode(href.substring(pathStart, pathEnd)));
+    }
+
+    PathSegments segments = PathSegments.of(href, pathStart, pathEnd);
+    int firstPercent = href.indexOf('%', pathStart);
+    if (firstPercent < 0 || firstPercent >= pathEnd) {
+      return segments;
+    }
+
+    String[] decoded = new String[segments.size()];
+    for (int i = 0; i < decoded.length; i++) {
+      decoded[i] = PercentEncoder.percentDecode(segments.get(i));
+    }
+    return List.of(decoded);
+  }
+
+  boolean hasOpaquePath() {
+    return hasOpaquePath;
+  }
+
+  /**
+   * Starts the path builder off with this URL's path, which must not be opaque, sharing the href
+   * rather than splitting it into segments.
+   */
+  void sharePath(PathBuilder path) {
+    path.share(href, pathStart, pathEnd());
+  }
+
+  private int pathEnd() {
+    return queryStart >= 0 ? queryStart : fragmentStart >= 0 ? fragmentStart : href.length();
   }
 
   public Optional<String> query() {
-    return Optional.ofNullable(query);
+    if (queryStart < 0) {
+      return Optional.empty();
+    }
+    int queryEnd = fragmentStart >= 0 ? fragmentStart : href.length();
+    return Optional.of(href.substring(queryStart + 1, queryEnd));
+  }
+
+  /**
+   * @return the query, percent-decoded, with any {@code +} left as-is
+   */
+  public Optional<String> decodedQuery() {
+    Optional<String> decoded = decodedQuery;
+    if (decoded == null) {
+      decoded = query().map(PercentEncoder::percentDecode);
+      decodedQuery = decoded;
+    }
+    return decoded;
+  }
+
+  /**
+   * @return the query's name-value pairs, which are decoded as they're read
+   */
+  public UrlSearchParams searchParams() {
+    UrlSearchParams params = searchParams;
+    if (params == null) {
+      params = new UrlSearchParams(this);
+      searchParams = params;
+    }
+    return params;
   }
 
   public Optional<String> fragment() {
-    return Optional.ofNullable(fragment);
+    if (fragmentStart < 0) {
+      return Optional.empty();
+    }
+    return Optional.of(href.substring(fragmentStart + 1));
+  }
+
+  /**
+   * @return the fragment, percent-decoded
+   */
+  public Optional<String> decodedFragment() {
+    Optional<String> decoded = decodedFragment;
+    if (decoded == null) {
+      decoded = fragment().map(PercentEncoder::percentDecode);
+      decodedFragment = decoded;
+    }
+    return decoded;
   }
 
   @Override
   public boolean equals(Object o) {
-    return this == o ||
-        o instanceof Url url &&
-            Objects.equals(scheme, url.scheme) &&
-            Objects.equals(username, url.username) &&
-            Objects.equals(password, url.password) &&
-            Objects.equals(host, url.host) &&
-            Objects.equals(port, url.port) &&
-            Objects.equals(path, url.path) &&
-            Objects.equals(query, url.query) &&
-            Objects.equals(fragment, url.fragment);
+    return this == o || o instanceof Url url && href.equals(url.href);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(scheme, username, password, host, port, path, query, fragment);
+    return href.hashCode();
   }
 
   @Override
   public String toString() {
-    StringBuilder output = new StringBuilder(scheme).append(":");
-
-    host().ifPresent(host -> {
-      output.append("//");
-      if (!username.isEmpty() || !password.isEmpty()) {
-        output.append(username);
-        if (!password.isEmpty()) {
-          output.append(":").append(password);
-        }
-        output.append("@");
-      }
-      output.append(host);
-      port().ifPresent(port -> output.append(":").append(Integer.toString(port)));
-    });
-
-    if (host().isEmpty() && path instanceof NonOpaque p && p.segments().size() > 1 && p.segments().get(0).isEmpty()) {
-      output.append("/.");
-    }
-
-    output.append(path);
-
-    query().ifPresent(query -> output.append('?').append(query));
+    return href;
+  }
 
-    // TODO: allow excluding fragment as per spec?
-    fragment().ifPresent(fragment -> output.append('#').append(fragment));
+  private enum HostKind {
+    NONE,
+    DOMAIN,
+    IP_ADDRESS,
+    OPAQUE,
+    EMPTY;
 
-    return output.toString();
+    static HostKind of(Host host) {
+      if (host instanceof Domain) {
+        return DOMAIN;
+      }
+      if (host instanceof Host.IpAddress) {
+        return IP_ADDRESS;
+      }
+      if (host instanceof Host.Opaque) {
+        return OPAQUE;
+      }
+      if (host instanceof Empty) {
+        return EMPTY;
+      }
+      throw new IllegalStateException("Unknown Host class: " + host);
+    }
   }
 }
@@ -20,6 +20,24 @@ import java.util.List;
 
 public sealed interface UrlParseResult {
   record Success(Url url) implements UrlParseResult {}
-  record SuccessWithErrors(Url url, List<ValidationError> errors) implements UrlParseResult {}
-  record Failure(List<ValidationError> errors) implements UrlParseResult {}
+
+  record SuccessWithErrors(Url url, List<ValidationError> errors) implements UrlParseResult {
+    /**
+     * @return whether some validation errors were left out of {@link #errors()}, because the
+     * {@link ParseOptions.Diagnostics} mode didn't keep them
+     */
+    public boolean isTruncated() {
+      return ValidationErrors.isTruncated(errors);
+    }
+  }
+
+  record Failure(List<ValidationError> errors) implements UrlParseResult {
+    /**
+     * @return whether some validation errors were left out of {@link #errors()}, because the
+     * {@link ParseOptions.Diagnostics} mode didn't keep them
+     */
+    public boolean isTruncated() {
+      return ValidationErrors.isTruncated(errors);
+    }
+  }
 }
@@ -16,6 +16,7 @@
 
 package com.tylerkindy.url;
 
+import static com.tylerkindy.url.CharacterUtils.asciiCopyTable;
 import static com.tylerkindy.url.CharacterUtils.isAsciiAlpha;
 import static com.tylerkindy.url.CharacterUtils.isAsciiAlphanumeric;
 import static com.tylerkindy.url.CharacterUtils.isAsciiDigit;
@@ -29,13 +30,10 @@ import static java.util.function.Predicate.isEqual;
 import com.google.common.collect.ImmutableMap;
 import com.tylerkindy.url.Host.Domain;
 import com.tylerkindy.url.Host.Empty;
-import com.tylerkindy.url.Pointer.PointedAt;
-import com.tylerkindy.url.Pointer.PointedAt.CodePoint;
-import com.tylerkindy.url.Pointer.PointedAt.Eof;
+import com.tylerkindy.url.ParseOptions.Diagnostics;
 import com.tylerkindy.url.UrlParseResult.Failure;
 import com.tylerkindy.url.UrlParseResult.Success;
 import com.tylerkindy.url.UrlPath.NonOpaque;
-import com.tylerkindy.url.UrlPath.Opaque;
 import com.tylerkindy.url.ValidationError.FileInvalidWindowsDriveLetter;
 import com.tylerkindy.url.ValidationError.FileInvalidWindowsDriveLetterHost;
 import com.tylerkindy.url.ValidationError.HostMissing;
@@ -46,7 +44,8 @@ import com.tylerkindy.url.ValidationError.MissingSchemeNonRelativeUrl;
 import com.tylerkindy.url.ValidationError.PortInvalid;
 import com.tylerkindy.url.ValidationError.PortOutOfRange;
 import com.tylerkindy.url.ValidationError.SpecialSchemeMissingFollowingSolidus;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -57,7 +56,9 @@ final class UrlParser {
 
   private static final Set<String> SPECIAL_SCHEMES =
       Set.of("ftp", "file", "http", "https", "ws", "wss");
-  private static final Map<String, Character> DEFAULT_PORTS = ImmutableMap.<String, Character>builder()
+  /** The special schemes again, as an array that can be searched without an iterator. */
+  private static final String[] SPECIAL_SCHEME_ARRAY = SPECIAL_SCHEMES.toArray(new String[0]);
+  static final Map<String, Character> DEFAULT_PORTS = ImmutableMap.<String, Character>builder()
       .put("ftp", (char) 21)
       .put("http", (char) 80)
       .put("https", (char) 443)
@@ -65,645 +66,1283 @@ final class UrlParser {
       .put("wss", (char) 443)
       .build();
 
+  /*
+   * Runs of these ASCII code points are copied straight into a component, rather than validated
+   * and percent-encoded one code point at a time.
+   */
+  private static final boolean[] PATH_COPY_TABLE = asciiCopyTable(PercentEncoder.PATH, "/");
+  private static final boolean[] OPAQUE_PATH_COPY_TABLE = asciiCopyTable(PercentEncoder.C0_CONTROL, "?#");
+  private static final boolean[] QUERY_COPY_TABLE = asciiCopyTable(PercentEncoder.QUERY, "");
+  private static final boolean[] SPECIAL_QUERY_COPY_TABLE = asciiCopyTable(PercentEncoder.SPECIAL_QUERY, "");
+  private static final boolean[] FRAGMENT_COPY_TABLE = asciiCopyTable(PercentEncoder.FRAGMENT, "");
+
+  private static final Failure FAILURE_WITHOUT_DIAGNOSTICS = new Failure(ValidationErrors.NONE_RECORDED);
+
   private UrlParser() {}
 
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   public UrlParseResult parse(String urlStr, Optional<Url> base) {
-    List<ValidationError> errors = new ArrayList<>();
-    urlStr = removeControlAndWhitespaceCharacters(urlStr, errors);
+    return parse(urlStr, base, ParseOptions.defaults());
+  }
 
-    State state = State.SCHEME_START;
-    final StringBuilder buffer = new StringBuilder();
-    boolean atSignSeen = false;
-    boolean insideBrackets = false;
-    boolean passwordTokenSeen = false;
-    Pointer pointer = new Pointer(urlStr);
-
-    String scheme = "";
-    StringBuilder username = new StringBuilder();
-    StringBuilder password = new StringBuilder();
-    Host host = null;
-    Character port = null;
-    UrlPath path = new NonOpaque(List.of());
-    StringBuilder query = null;
-    StringBuilder fragment = null;
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  public UrlParseResult parse(String urlStr, Optional<Url> base, ParseOptions options) {
+    return parse(urlStr, 0, urlStr.length(), base, options);
+  }
+
+  /**
+   * Parses the chars in {@code [start, end)} of the input in place, without copying them into a
+   * string first.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  public UrlParseResult parse(
+      CharSequence input,
+      int start,
+      int end,
+      Optional<Url> base,
+      ParseOptions options
+  ) {
+    Optional<Url> fastUrl = FastUrlParser.tryParse(input, start, end, options.hostCache());
+    if (fastUrl.isPresent()) {
+      return new Success(fastUrl.get());
+    }
+    return parseWithStateMachine(input, start, end, base, options);
+  }
+
+  /**
+   * Parses the chars in {@code [start, end)} of the input like
+   * {@link #parse(CharSequence, int, int, Optional, ParseOptions)}, reusing the serializer, scratch
+   * buffers and input pointer of the given {@linkplain ParseState#reusable() reusable} state rather
+   * than allocating new ones, on the {@link FastUrlParser} fast path as well as in the state
+   * machine.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  UrlParseResult parse(
+      CharSequence input,
+      int start,
+      int end,
+      Optional<Url> base,
+      ParseOptions options,
+      ParseState p
+  ) {
+    Optional<Url> fastUrl = FastUrlParser.tryParse(input, start, end, options.hostCache(), p.serializer());
+    if (fastUrl.isPresent()) {
+      return new Success(fastUrl.get());
+    }
+
+    // errors handed out with a failure can't be reused
+    ValidationErrors errors = p.errors == null || p.errors.isFrozen() ?
+        new ValidationErrors(options.diagnostics()) :
+        p.errors;
+    errors.clear();
+
+    Pointer pointer = removeControlAndWhitespaceCharacters(input, start, end, errors, p.inputPointer);
+    p.reset(pointer, base, options.hostCache(), errors);
+    return runStateMachine(p, options);
+  }
+
+  /**
+   * Parses with the full state machine, skipping the {@link FastUrlParser} fast path.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  UrlParseResult parseWithStateMachine(
+      CharSequence input,
+      int start,
+      int end,
+      Optional<Url> base,
+      ParseOptions options
+  ) {
+    ValidationErrors errors = new ValidationErrors(options.diagnostics());
+    Pointer pointer = removeControlAndWhitespaceCharacters(input, start, end, errors);
+
+    return runStateMachine(pointer, base, options, errors);
+  }
+
+  /**
+   * Parses the chars in {@code [start, end)} of the input, reporting the URL's components to the
+   * visitor instead of building a {@link Url}.
+   *
+   * @return whether the input parsed; nothing is reported if it didn't
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  public boolean parse(
+      CharSequence input,
+      int start,
+      int end,
+      Optional<Url> base,
+      ParseOptions options,
+      UrlVisitor visitor
+  ) {
+    ValidationErrors errors = new ValidationErrors(options.diagnostics());
+    Pointer pointer = removeControlAndWhitespaceCharacters(input, start, end, errors);
+
+    ParseState p = new ParseState(pointer, base, options.hostCache(), errors);
+    if (!runStateMachine(p)) {
+      return false;
+    }
+    p.visit(visitor);
+    return true;
+  }
+
+  /**
+   * Checks whether the chars in {@code [start, end)} of the input parse, without building the URL.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  public boolean canParse(CharSequence input, int start, int end, Optional<Url> base) {
+    return parseUntilPath(input, start, end, base, Optional.empty()) != null;
+  }
+
+  /**
+   * Parses just the host of the chars in {@code [start, end)} of the input, skipping everything
+   * after it.
+   *
+   * @return the host, or empty if the input doesn't parse or has no host
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  public Optional<Host> parseHost(
+      CharSequence input,
+      int start,
+      int end,
+      Optional<Url> base,
+      ParseOptions options
+  ) {
+    ParseState p = parseUntilPath(input, start, end, base, options.hostCache());
+    return p == null ? Optional.empty() : Optional.ofNullable(p.host);
+  }
+
+  /**
+   * Runs the state machine until the scheme, host and port are final, with no diagnostics. Errors
+   * go to a shared list that drops them, and the state's buffers for the rest of the URL are never
+   * created, so this allocates only what the scheme and authority need.
+   *
+   * @return the state at that point, or null if the input failed to parse
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private static ParseState parseUntilPath(
+      CharSequence input,
+      int start,
+      int end,
+      Optional<Url> base,
+      Optional<HostCache> hostCache
+  ) {
+    ValidationErrors errors = ValidationErrors.DISCARDED;
+    Pointer pointer = removeControlAndWhitespaceCharacters(input, start, end, errors);
+
+    ParseState p = new ParseState(pointer, base, hostCache, errors);
+    p.stopAtPath = true;
+    return runStateMachine(p) ? p : null;
+  }
+
+  /**
+   * Parses the UTF-8 bytes in {@code [start, end)} without decoding them into a string first. If
+   * they aren't well-formed UTF-8, they're decoded as usual, with malformed sequences replaced.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  public UrlParseResult parse(
+      byte[] bytes,
+      int start,
+      int end,
+      Optional<Url> base,
+      ParseOptions options
+  ) {
+    return parse(Utf8Pointer.of(bytes, start, end), base, options);
+  }
+
+  /**
+   * Parses the UTF-8 bytes remaining in the buffer like {@link #parse(byte[], int, int, Optional,
+   * ParseOptions)}, reading a buffer without a backing array in place rather than copying it. The
+   * buffer's position is left unchanged.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  public UrlParseResult parse(ByteBuffer bytes, Optional<Url> base, ParseOptions options) {
+    return parse(Utf8Pointer.of(bytes), base, options);
+  }
+
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private UrlParseResult parse(Utf8Pointer bytes, Optional<Url> base, ParseOptions options) {
+    if (!bytes.isValidUtf8()) {
+      return parse(bytes.decode(StandardCharsets.UTF_8), base, options);
+    }
+
+    if (bytes.isAscii()) {
+      Optional<Url> fastUrl = FastUrlParser.tryParse(
+          bytes.decode(StandardCharsets.ISO_8859_1),
+          options.hostCache()
+      );
+      if (fastUrl.isPresent()) {
+        return new Success(fastUrl.get());
+      }
+    }
+
+    ValidationErrors errors = new ValidationErrors(options.diagnostics());
+    return runStateMachine(removeControlAndWhitespaceBytes(bytes, errors), base, options, errors);
+  }
+
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private static UrlParseResult runStateMachine(
+      InputPointer pointer,
+      Optional<Url> base,
+      ParseOptions options,
+      ValidationErrors errors
+  ) {
+    return runStateMachine(new ParseState(pointer, base, options.hostCache(), errors), options);
+  }
+
+  private static UrlParseResult runStateMachine(ParseState p, ParseOptions options) {
+    if (!runStateMachine(p)) {
+      if (options.diagnostics() == Diagnostics.NONE) {
+        return FAILURE_WITHOUT_DIAGNOSTICS;
+      }
+      return new Failure(p.errors.toList());
+    }
+    return new Success(p.toUrl());
+  }
+
+  /**
+   * Runs the basic URL parser's state machine to completion. Each state is handled by its own
+   * method, keeping this loop and every handler small enough for the JIT to compile and inline.
+   *
+   * @return false if the input failed to parse
+   */
+  private static boolean runStateMachine(ParseState p) {
+    InputPointer pointer = p.pointer;
 
     while (true) {
-      switch (state) {
-        case SCHEME_START -> {
-          if (pointer.pointedAt() instanceof CodePoint cp && isAsciiAlpha(cp.codePoint())) {
-            buffer.appendCodePoint(Character.toLowerCase(cp.codePoint()));
-            state = State.SCHEME;
-          } else {
-            state = State.NO_SCHEME;
-            pointer.decrease();
-          }
-        }
-        case SCHEME -> {
-          PointedAt pointedAt = pointer.pointedAt();
-          if (pointedAt instanceof CodePoint cp && (
-              isAsciiAlphanumeric(cp.codePoint()) ||
-                  cp.codePoint() == '+' ||
-                  cp.codePoint() == '-' ||
-                  cp.codePoint() == '.'
-          )) {
-            buffer.appendCodePoint(Character.toLowerCase(cp.codePoint()));
-          } else if (pointedAt instanceof CodePoint cp && cp.codePoint() == ':') {
-            scheme = buffer.toString();
-            buffer.delete(0, buffer.length());
-
-            if (scheme.equals("file")) {
-              if (!pointer.doesRemainingStartWith("//")) {
-                errors.add(new SpecialSchemeMissingFollowingSolidus());
-              }
-              state = State.FILE;
-            } else if (SPECIAL_SCHEMES.contains(scheme)
-                && base.map(Url::scheme).filter(isEqual(scheme)).isPresent()) {
-              state = State.SPECIAL_RELATIVE_OR_AUTHORITY;
-            } else if (SPECIAL_SCHEMES.contains(scheme)) {
-              state = State.SPECIAL_AUTHORITY_SLASHES;
-            } else if (pointer.doesRemainingStartWith("/")) {
-              state = State.PATH_OR_AUTHORITY;
-              pointer.increase();
-            } else {
-              path = new Opaque("");
-              state = State.OPAQUE_PATH;
-            }
-          } else {
-            buffer.delete(0, buffer.length());
-            state = State.NO_SCHEME;
-            pointer.reset();
-            pointer.decrease();
-          }
-        }
-        case NO_SCHEME -> {
-          if (base.isEmpty()
-              || (base.get().path() instanceof Opaque && !(pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == '#'))) {
-            errors.add(new MissingSchemeNonRelativeUrl());
-            return new Failure(errors);
-          } else if (base.get().path() instanceof Opaque && pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == '#') {
-            scheme = base.get().scheme();
-            path = base.get().path();
-            query = base.get().query().map(StringBuilder::new).orElse(null);
-            fragment = new StringBuilder();
-            state = State.FRAGMENT;
-          } else if (!base.get().scheme().equals("file")) {
-            state = State.RELATIVE;
-            pointer.decrease();
-          } else {
-            state = State.FILE;
-            pointer.decrease();
-          }
-        }
-        case SPECIAL_RELATIVE_OR_AUTHORITY -> {
-          if (pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == '/' && pointer.doesRemainingStartWith("/")) {
-            state = State.SPECIAL_AUTHORITY_IGNORE_SLASHES;
-            pointer.increase();
-          } else {
-            errors.add(new SpecialSchemeMissingFollowingSolidus());
-            state = State.RELATIVE;
-            pointer.decrease();
-          }
-        }
-        case PATH_OR_AUTHORITY -> {
-          if (pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == '/') {
-            state = State.AUTHORITY;
-          } else {
-            state = State.PATH;
-            pointer.decrease();
-          }
-        }
-        case RELATIVE -> {
-          scheme = base.get().scheme();
-          if (pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == '/') {
-            state = State.RELATIVE_SLASH;
-          } else if (SPECIAL_SCHEMES.contains(scheme) && pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == '\\') {
-            errors.add(new InvalidReverseSolidus());
-            state = State.RELATIVE_SLASH;
-          } else {
-            username = new StringBuilder(base.get().username());
-            password = new StringBuilder(base.get().password());
-            host = base.get().host().orElse(null);
-            port = base.get().port().orElse(null);
-            path = base.get().path().copy();
-            query = base.get().query().map(StringBuilder::new).orElse(null);
-
-            PointedAt pointedAt = pointer.pointedAt();
-            if (pointedAt instanceof CodePoint cp && cp.codePoint() == '?') {
-              query = new StringBuilder();
-              state = State.QUERY;
-            } else if (pointedAt instanceof CodePoint cp && cp.codePoint() == '#') {
-              fragment = new StringBuilder();
-              state = State.FRAGMENT;
-            } else if (pointedAt instanceof CodePoint cp) {
-              var c = cp.codePoint();
-              query = null;
-
-              if (path instanceof NonOpaque no && !no.segments().isEmpty()) {
-                path = new NonOpaque(no.segments().subList(0, no.segments().size() - 1));
-              }
-
-              state = State.PATH;
-              pointer.decrease();
-            }
-          }
-        }
-        case RELATIVE_SLASH -> {
-          if (SPECIAL_SCHEMES.contains(scheme) && (pointer.pointedAt() instanceof CodePoint cp && (cp.codePoint() == '/' || cp.codePoint() == '\\'))) {
-            if (cp.codePoint() == '\\') {
-              errors.add(new InvalidReverseSolidus());
-            }
-            state = State.SPECIAL_AUTHORITY_IGNORE_SLASHES;
-          } else if (pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == '/') {
-            state = State.AUTHORITY;
-          } else {
-            username = new StringBuilder(base.get().username());
-            password = new StringBuilder(base.get().password());
-            host = base.get().host().orElse(null);
-            port = base.get().port().orElse(null);
-            state = State.PATH;
-            pointer.decrease();
-          }
-        }
-        case SPECIAL_AUTHORITY_SLASHES -> {
-          if (pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == '/' && pointer.doesRemainingStartWith("/")) {
-            state = State.SPECIAL_AUTHORITY_IGNORE_SLASHES;
-            pointer.increase();
-          } else {
-            errors.add(new SpecialSchemeMissingFollowingSolidus());
-            state = State.SPECIAL_AUTHORITY_IGNORE_SLASHES;
-            pointer.decrease();
-          }
-        }
-        case SPECIAL_AUTHORITY_IGNORE_SLASHES -> {
-          if (!(pointer.pointedAt() instanceof CodePoint cp && (cp.codePoint() == '/' || cp.codePoint() == '\\'))) {
-            state = State.AUTHORITY;
-            pointer.decrease();
-          } else {
-            errors.add(new SpecialSchemeMissingFollowingSolidus());
-          }
-        }
-        case AUTHORITY -> {
-          PointedAt pointedAt = pointer.pointedAt();
-
-          if (pointedAt instanceof CodePoint cp && cp.codePoint() == '@') {
-            errors.add(new InvalidCredentials());
-            if (atSignSeen) {
-              buffer.insert(0, "%40");
-            }
-            atSignSeen = true;
-            Iterable<Integer> bufferCodePoints = () -> buffer.codePoints().iterator();
-            for (int codePoint : bufferCodePoints) {
-              if (codePoint == ':' && !passwordTokenSeen) {
-                passwordTokenSeen = true;
-                continue;
-              }
-
-              String encodedCodePoints = PercentEncoder.utf8PercentEncode(codePoint, PercentEncoder.USERINFO);
-              if (passwordTokenSeen) {
-                password.append(encodedCodePoints);
-              } else {
-                username.append(encodedCodePoints);
-              }
-            }
-
-            buffer.delete(0, buffer.length());
-          } else if (
-              (pointedAt instanceof Eof || (pointedAt instanceof CodePoint cp && (cp.codePoint() == '/' || cp.codePoint() == '?' || cp.codePoint() == '#'))) ||
-                  (SPECIAL_SCHEMES.contains(scheme) && pointedAt instanceof CodePoint cp && cp.codePoint() == '\\')
-          ) {
-            if (atSignSeen && buffer.isEmpty()) {
-              errors.add(new HostMissing());
-              return new Failure(errors);
-            }
-            pointer.decrease(buffer.codePointCount(0, buffer.length()) + 1);
-            buffer.delete(0, buffer.length());
-            state = State.HOST;
-          } else {
-            if (pointedAt instanceof CodePoint cp) {
-              buffer.appendCodePoint(cp.codePoint());
-            } else {
-              throw new IllegalStateException("Expected code point");
-            }
-          }
-        }
-        case HOST, HOSTNAME -> {
-          PointedAt pointedAt = pointer.pointedAt();
-
-          if (pointedAt instanceof CodePoint cp && cp.codePoint() == ':' && !insideBrackets) {
-            if (buffer.isEmpty()) {
-              errors.add(new HostMissing());
-              return new Failure(errors);
-            }
-            Optional<Host> maybeHost = HostParser.parseHost(buffer.toString(), !SPECIAL_SCHEMES.contains(scheme), errors);
-            if (maybeHost.isEmpty()) {
-              return new Failure(errors);
-            }
-            host = maybeHost.get();
-            buffer.delete(0, buffer.length());
-            state = State.PORT;
-          } else if (
-              (pointedAt instanceof Eof || (pointedAt instanceof CodePoint cp && (cp.codePoint() == '/' || cp.codePoint() == '?' || cp.codePoint() == '#'))) ||
-                  (SPECIAL_SCHEMES.contains(scheme) && pointedAt instanceof CodePoint cp && cp.codePoint() == '\\')
-          ) {
-            pointer.decrease();
-            if (SPECIAL_SCHEMES.contains(scheme) && buffer.isEmpty()) {
-              errors.add(new HostMissing());
-              return new Failure(errors);
-            }
-            Optional<Host> maybeHost = HostParser.parseHost(buffer.toString(), !SPECIAL_SCHEMES.contains(scheme), errors);
-            if (maybeHost.isEmpty()) {
-              return new Failure(errors);
-            }
-            host = maybeHost.get();
-            buffer.delete(0, buffer.length());
-            state = State.PATH_START;
-          } else {
-            if (pointedAt instanceof CodePoint cp) {
-              var c = cp.codePoint();
-              if (c == '[') {
-                insideBrackets = true;
-              }
-              if (c == ']') {
-                insideBrackets = false;
-              }
-              buffer.appendCodePoint(c);
-            }
-          }
-        }
-        case PORT -> {
-          PointedAt pointedAt = pointer.pointedAt();
-
-          if (pointedAt instanceof CodePoint cp && isAsciiDigit(cp.codePoint())) {
-            buffer.appendCodePoint(cp.codePoint());
-          } else if (
-              (pointedAt instanceof Eof || (pointedAt instanceof CodePoint cp && (cp.codePoint() == '/' || cp.codePoint() == '?' || cp.codePoint() == '#'))) ||
-                  (SPECIAL_SCHEMES.contains(scheme) && pointedAt instanceof CodePoint cp && cp.codePoint() == '\\')
-          ) {
-            if (!buffer.isEmpty()) {
-              int portInt;
-              try {
-                portInt = Integer.parseInt(buffer.toString());
-              } catch (NumberFormatException e) {
-                errors.add(new PortOutOfRange());
-                return new Failure(errors);
-              }
-
-              if (portInt > Character.MAX_VALUE) {
-                errors.add(new PortOutOfRange());
-                return new Failure(errors);
-              }
-
-              char portChar = (char) portInt;
-
-              if (
-                  Optional.ofNullable(DEFAULT_PORTS.get(scheme))
-                      .filter(isEqual(portChar))
-                      .isPresent()
-              ) {
-                port = null;
-              } else {
-                port = portChar;
-              }
-
-              buffer.delete(0, buffer.length());
-            }
-
-            state = State.PATH_START;
-            pointer.decrease();
-          } else {
-            errors.add(new PortInvalid());
-            return new Failure(errors);
-          }
-        }
-        case FILE -> {
-          scheme = "file";
-          host = new Empty();
-
-          if (pointer.pointedAt() instanceof CodePoint cp && (cp.codePoint() == '/' || cp.codePoint() == '\\')) {
-            if (cp.codePoint() == '\\') {
-              errors.add(new InvalidReverseSolidus());
-            }
-            state = State.FILE_SLASH;
-          } else if (base.map(Url::scheme).filter(isEqual("file")).isPresent()) {
-            Url b = base.get();
-
-            host = b.host().orElse(null);
-            path = b.path().copy();
-            query = b.query().map(StringBuilder::new).orElse(null);
-
-            PointedAt pointedAt = pointer.pointedAt();
-            if (pointedAt instanceof CodePoint cp && cp.codePoint() == '?') {
-              query = new StringBuilder();
-              state = State.QUERY;
-            } else if (pointedAt instanceof CodePoint cp && cp.codePoint() == '#') {
-              fragment = new StringBuilder();
-              state = State.FRAGMENT;
-            } else if (pointedAt instanceof CodePoint cp) {
-              var c = cp.codePoint();
-              query = null;
-
-              if (!pointer.doesRemainingStartWithWindowsDriveLetter()) {
-                path = path.shorten(scheme);
-              } else {
-                errors.add(new FileInvalidWindowsDriveLetter());
-                path = new NonOpaque(List.of());
-              }
-
-              state = State.PATH;
-              pointer.decrease();
-            }
-          } else {
-            state = State.PATH;
-            pointer.decrease();
-          }
-        }
-        case FILE_SLASH -> {
-          if (pointer.pointedAt() instanceof CodePoint cp && (cp.codePoint() == '/' || cp.codePoint() == '\\')) {
-            if (cp.codePoint() == '\\') {
-              errors.add(new InvalidReverseSolidus());
-            }
-            state = State.FILE_HOST;
-          } else {
-            if (base.map(Url::scheme).filter(isEqual("file")).isPresent()) {
-              Url b = base.get();
-              host = b.host().orElse(null);
-
-              if (
-                  !pointer.doesRemainingStartWithWindowsDriveLetter()
-              ) {
-                String baseFirstPathSegment = ((NonOpaque) b.path()).segments().get(0);
-
-                if (isNormalizedWindowsDriveLetter(baseFirstPathSegment)) {
-                  path = path.append(baseFirstPathSegment);
-                }
-              }
-            }
-            state = State.PATH;
-            pointer.decrease();
-          }
-        }
-        case FILE_HOST -> {
-          PointedAt pointedAt = pointer.pointedAt();
-
-          if (
-              pointedAt instanceof Eof ||
-                  (pointedAt instanceof CodePoint cp &&
-                      (cp.codePoint() == '/' || cp.codePoint() == '\\' || cp.codePoint() == '?' || cp.codePoint() == '#'))
-          ) {
-            pointer.decrease();
-
-            if (isWindowsDriveLetter(buffer.toString())) {
-              errors.add(new FileInvalidWindowsDriveLetterHost());
-              state = State.PATH;
-            } else if (buffer.isEmpty()) {
-              host = new Empty();
-              state = State.PATH_START;
-            } else {
-              Optional<Host> maybeHost = HostParser.parseHost(buffer.toString(), !SPECIAL_SCHEMES.contains(scheme), errors);
-              if (maybeHost.isEmpty()) {
-                return new Failure(errors);
-              }
-
-              Host host1 = maybeHost.get();
-
-              if (host1 instanceof Domain d && d.domain().equals("localhost")) {
-                host1 = new Empty();
-              }
-
-              host = host1;
-              buffer.delete(0, buffer.length());
-              state = State.PATH_START;
-            }
-          } else {
-            buffer.appendCodePoint(((CodePoint) pointedAt).codePoint());
-          }
-        }
-        case PATH_START -> {
-          if (SPECIAL_SCHEMES.contains(scheme)) {
-            if (pointer.pointedAt() instanceof CodePoint cp && cp.codePoint() == '\\') {
-              errors.add(new InvalidReverseSolidus());
-            }
-            state = State.PATH;
-
-            if (!(pointer.pointedAt() instanceof CodePoint cp && (cp.codePoint() == '/' || cp.codePoint() == '\\'))) {
-              pointer.decrease();
-            }
-          } else {
-            PointedAt pointedAt = pointer.pointedAt();
-            if (pointedAt instanceof CodePoint cp && cp.codePoint() == '?') {
-              query = new StringBuilder();
-              state = State.QUERY;
-            } else if (pointedAt instanceof CodePoint cp && cp.codePoint() == '#') {
-              fragment = new StringBuilder();
-              state = State.FRAGMENT;
-            } else if (pointedAt instanceof CodePoint cp) {
-              state = State.PATH;
-              if (cp.codePoint() != '/') {
-                pointer.decrease();
-              }
-            }
-          }
+      int c = pointer.codePoint();
+
+      boolean ok = switch (p.state) {
+        case SCHEME_START -> schemeStartState(p, c);
+        case SCHEME -> schemeState(p, c);
+        case NO_SCHEME -> noSchemeState(p, c);
+        case SPECIAL_RELATIVE_OR_AUTHORITY -> specialRelativeOrAuthorityState(p, c);
+        case PATH_OR_AUTHORITY -> pathOrAuthorityState(p, c);
+        case RELATIVE -> relativeState(p, c);
+        case RELATIVE_SLASH -> relativeSlashState(p, c);
+        case SPECIAL_AUTHORITY_SLASHES -> specialAuthoritySlashesState(p, c);
+        case SPECIAL_AUTHORITY_IGNORE_SLASHES -> specialAuthorityIgnoreSlashesState(p, c);
+        case AUTHORITY -> authorityState(p, c);
+        case HOST, HOSTNAME -> hostState(p, c);
+        case PORT -> portState(p, c);
+        case FILE -> fileState(p, c);
+        case FILE_SLASH -> fileSlashState(p, c);
+        case FILE_HOST -> fileHostState(p, c);
+        case PATH_START -> pathStartState(p, c);
+        case PATH -> pathState(p, c);
+        case OPAQUE_PATH -> opaquePathState(p, c);
+        case QUERY -> queryState(p, c);
+        case FRAGMENT -> fragmentState(p, c);
+      };
+      if (!ok || p.errors.shouldStop()) {
+        return false;
+      }
+
+      if (p.isDone()) {
+        return true;
+      }
+      pointer.increase();
+    }
+  }
+
+  private static boolean schemeStartState(ParseState p, int c) {
+    if (isAsciiAlpha(c)) {
+      p.buffer.appendCodePoint(Character.toLowerCase(c));
+      p.state = State.SCHEME;
+    } else {
+      p.state = State.NO_SCHEME;
+      p.pointer.decrease();
+    }
+    return true;
+  }
+
+  private static boolean schemeState(ParseState p, int c) {
+    if (isAsciiAlphanumeric(c) || c == '+' || c == '-' || c == '.') {
+      p.buffer.appendCodePoint(Character.toLowerCase(c));
+    } else if (c == ':') {
+      p.scheme = schemeOf(p.buffer);
+      p.clearBuffer();
+
+      if (p.scheme.equals("file")) {
+        if (!p.pointer.doesRemainingStartWith("//")) {
+          p.errors.add(SpecialSchemeMissingFollowingSolidus.INSTANCE);
         }
-        case PATH -> {
-          PointedAt pointedAt = pointer.pointedAt();
-          if (
-              (pointedAt instanceof Eof || (pointedAt instanceof CodePoint cp && cp.codePoint() == '/')) ||
-                  (SPECIAL_SCHEMES.contains(scheme) && pointedAt instanceof CodePoint cp && cp.codePoint() == '\\') ||
-                  (pointedAt instanceof CodePoint cp1 && (cp1.codePoint() == '?' || cp1.codePoint() == '#'))
-          ) {
-            if (SPECIAL_SCHEMES.contains(scheme) && pointedAt instanceof CodePoint cp && cp.codePoint() == '\\') {
-              errors.add(new InvalidReverseSolidus());
-            }
-
-            String curBuffer = buffer.toString();
-            if (curBuffer.equals("..") ||
-                curBuffer.equalsIgnoreCase(".%2e") ||
-                curBuffer.equalsIgnoreCase("%2e.") ||
-                curBuffer.equalsIgnoreCase("%2e%2e")) {
-              path = path.shorten(scheme);
-
-              if (
-                  !(pointedAt instanceof CodePoint cp && cp.codePoint() == '/') &&
-                      !(SPECIAL_SCHEMES.contains(scheme) && pointedAt instanceof CodePoint cp1 && cp1.codePoint() == '\\')
-              ) {
-                path = path.append("");
-              }
-            } else if (
-                (curBuffer.equals(".") || curBuffer.equalsIgnoreCase("%2e")) &&
-                    !(pointedAt instanceof CodePoint cp && cp.codePoint() == '/') &&
-                    !(SPECIAL_SCHEMES.contains(scheme) && pointedAt instanceof CodePoint cp1 && cp1.codePoint() == '\\')
-
-            ) {
-              path = path.append("");
-            } else if (!(curBuffer.equals(".") || curBuffer.equalsIgnoreCase("%2e"))) {
-              if (
-                  scheme.equals("file") &&
-                      path instanceof NonOpaque no &&
-                      no.segments().isEmpty() &&
-                      isWindowsDriveLetter(curBuffer)
-              ) {
-                buffer.setCharAt(1, ':');
-                curBuffer = buffer.toString();
-              }
-              path = path.append(curBuffer);
-            }
-
-            buffer.delete(0, buffer.length());
-
-            if (pointedAt instanceof CodePoint cp && cp.codePoint() == '?') {
-              query = new StringBuilder();
-              state = State.QUERY;
-            } else if (pointedAt instanceof CodePoint cp && cp.codePoint() == '#') {
-              fragment = new StringBuilder();
-              state = State.FRAGMENT;
-            }
-          } else {
-            int c;
-            if (pointedAt instanceof CodePoint cp) {
-              c = cp.codePoint();
-            } else {
-              throw new IllegalStateException("Must be code point here!");
-            }
-            if (!isUrlCodePoint(c) && c != '%') {
-              errors.add(new InvalidUrlUnit(Character.toString(c)));
-            }
-            if (c == '%' && !pointer.doesRemainingStartWith("%d%d")) {
-              errors.add(new InvalidUrlUnit("Unexpected %"));
-            }
-
-            buffer.append(PercentEncoder.utf8PercentEncode(c, PercentEncoder.PATH));
-          }
+        p.state = State.FILE;
+      } else if (p.isSpecial()
+          && p.baseHasScheme(p.scheme)) {
+        p.state = State.SPECIAL_RELATIVE_OR_AUTHORITY;
+      } else if (p.isSpecial()) {
+        p.state = State.SPECIAL_AUTHORITY_SLASHES;
+      } else if (p.pointer.doesRemainingStartWith("/")) {
+        p.state = State.PATH_OR_AUTHORITY;
+        p.pointer.increase();
+      } else {
+        p.startOpaquePath();
+        p.state = State.OPAQUE_PATH;
+      }
+    } else {
+      p.clearBuffer();
+      p.state = State.NO_SCHEME;
+      p.pointer.reset();
+      p.pointer.decrease();
+    }
+    return true;
+  }
+
+  /**
+   * @return the scheme in the buffer, reusing the constant for a special scheme instead of
+   * allocating a new string
+   */
+  private static String schemeOf(StringBuilder buffer) {
+    for (String special : SPECIAL_SCHEME_ARRAY) {
+      if (special.contentEquals(buffer)) {
+        return special;
+      }
+    }
+    return buffer.toString();
+  }
+
+  private static boolean noSchemeState(ParseState p, int c) {
+    if (p.base.isEmpty() || (p.base.get().hasOpaquePath() && c != '#')) {
+      p.errors.add(MissingSchemeNonRelativeUrl.INSTANCE);
+      return false;
+    }
+
+    Url base = p.base.get();
+    if (base.hasOpaquePath() && c == '#') {
+      p.scheme = base.scheme();
+      p.copyPath(base);
+      p.copyQuery(base);
+      p.startFragment();
+      p.state = State.FRAGMENT;
+    } else if (!base.scheme().equals("file")) {
+      p.state = State.RELATIVE;
+      p.pointer.decrease();
+    } else {
+      p.state = State.FILE;
+      p.pointer.decrease();
+    }
+    return true;
+  }
+
+  private static boolean specialRelativeOrAuthorityState(ParseState p, int c) {
+    if (c == '/' && p.pointer.doesRemainingStartWith("/")) {
+      p.state = State.SPECIAL_AUTHORITY_IGNORE_SLASHES;
+      p.pointer.increase();
+    } else {
+      p.errors.add(SpecialSchemeMissingFollowingSolidus.INSTANCE);
+      p.state = State.RELATIVE;
+      p.pointer.decrease();
+    }
+    return true;
+  }
+
+  private static boolean pathOrAuthorityState(ParseState p, int c) {
+    if (c == '/') {
+      p.state = State.AUTHORITY;
+    } else {
+      p.state = State.PATH;
+      p.pointer.decrease();
+    }
+    return true;
+  }
+
+  private static boolean relativeState(ParseState p, int c) {
+    Url base = p.base.get();
+    p.scheme = base.scheme();
+
+    if (c == '/') {
+      p.state = State.RELATIVE_SLASH;
+    } else if (p.isSpecial() && c == '\\') {
+      p.errors.add(InvalidReverseSolidus.INSTANCE);
+      p.state = State.RELATIVE_SLASH;
+    } else {
+      p.copyCredentials(base);
+      p.host = base.host().orElse(null);
+      p.port = base.port().orElse(null);
+      p.copyPath(base);
+      p.copyQuery(base);
+
+      if (c == '?') {
+        p.startQuery();
+        p.state = State.QUERY;
+      } else if (c == '#') {
+        p.startFragment();
+        p.state = State.FRAGMENT;
+      } else if (c != Pointer.EOF) {
+        p.query = null;
+
+        p.path().removeLast();
+
+        p.state = State.PATH;
+        p.pointer.decrease();
+      }
+    }
+    return true;
+  }
+
+  private static boolean relativeSlashState(ParseState p, int c) {
+    if (p.isSpecial() && (c == '/' || c == '\\')) {
+      if (c == '\\') {
+        p.errors.add(InvalidReverseSolidus.INSTANCE);
+      }
+      p.state = State.SPECIAL_AUTHORITY_IGNORE_SLASHES;
+    } else if (c == '/') {
+      p.state = State.AUTHORITY;
+    } else {
+      Url base = p.base.get();
+      p.copyCredentials(base);
+      p.host = base.host().orElse(null);
+      p.port = base.port().orElse(null);
+      p.state = State.PATH;
+      p.pointer.decrease();
+    }
+    return true;
+  }
+
+  private static boolean specialAuthoritySlashesState(ParseState p, int c) {
+    if (c == '/' && p.pointer.doesRemainingStartWith("/")) {
+      p.state = State.SPECIAL_AUTHORITY_IGNORE_SLASHES;
+      p.pointer.increase();
+    } else {
+      p.errors.add(SpecialSchemeMissingFollowingSolidus.INSTANCE);
+      p.state = State.SPECIAL_AUTHORITY_IGNORE_SLASHES;
+      p.pointer.decrease();
+    }
+    return true;
+  }
+
+  private static boolean specialAuthorityIgnoreSlashesState(ParseState p, int c) {
+    if (c != '/' && c != '\\') {
+      p.state = State.AUTHORITY;
+      p.pointer.decrease();
+    } else {
+      p.errors.add(SpecialSchemeMissingFollowingSolidus.INSTANCE);
+    }
+    return true;
+  }
+
+  private static boolean authorityState(ParseState p, int c) {
+    StringBuilder buffer = p.buffer;
+
+    if (c == '@') {
+      p.errors.add(InvalidCredentials.INSTANCE);
+      if (p.atSignSeen) {
+        buffer.insert(0, "%40");
+      }
+      p.atSignSeen = true;
+      if (!p.stopAtPath) {
+        appendCredentials(p);
+      }
+      p.clearBuffer();
+    } else if (p.isEndOfAuthority(c)) {
+      if (p.atSignSeen && buffer.isEmpty()) {
+        p.errors.add(HostMissing.INSTANCE);
+        return false;
+      }
+      p.pointer.decrease(buffer.codePointCount(0, buffer.length()) + 1);
+      p.clearBuffer();
+      p.state = State.HOST;
+    } else {
+      buffer.appendCodePoint(c);
+    }
+    return true;
+  }
+
+  private static void appendCredentials(ParseState p) {
+    StringBuilder buffer = p.buffer;
+
+    for (int i = 0; i < buffer.length(); ) {
+      int codePoint = buffer.codePointAt(i);
+      i += Character.charCount(codePoint);
+
+      if (codePoint == ':' && !p.passwordTokenSeen) {
+        p.passwordTokenSeen = true;
+        continue;
+      }
+
+      PercentEncoder.appendUtf8PercentEncoded(
+          p.passwordTokenSeen ? p.password() : p.username(),
+          codePoint,
+          PercentEncoder.USERINFO
+      );
+    }
+  }
+
+  private static boolean hostState(ParseState p, int c) {
+    StringBuilder buffer = p.buffer;
+
+    if (c == ':' && !p.insideBrackets) {
+      if (buffer.isEmpty()) {
+        p.errors.add(HostMissing.INSTANCE);
+        return false;
+      }
+      if (!parseBufferAsHost(p)) {
+        return false;
+      }
+      p.state = State.PORT;
+    } else if (p.isEndOfAuthority(c)) {
+      p.pointer.decrease();
+      if (p.isSpecial() && buffer.isEmpty()) {
+        p.errors.add(HostMissing.INSTANCE);
+        return false;
+      }
+      if (!parseBufferAsHost(p)) {
+        return false;
+      }
+      p.state = State.PATH_START;
+    } else {
+      if (c == '[') {
+        p.insideBrackets = true;
+      }
+      if (c == ']') {
+        p.insideBrackets = false;
+      }
+      buffer.appendCodePoint(c);
+    }
+    return true;
+  }
+
+  private static boolean parseBufferAsHost(ParseState p) {
+    Optional<Host> maybeHost = parseHost(p.buffer.toString(), !p.isSpecial(), p.errors, p.hostCache);
+    if (maybeHost.isEmpty()) {
+      return false;
+    }
+    p.host = maybeHost.get();
+    p.clearBuffer();
+    return true;
+  }
+
+  private static boolean portState(ParseState p, int c) {
+    if (isAsciiDigit(c)) {
+      p.buffer.appendCodePoint(c);
+    } else if (p.isEndOfAuthority(c)) {
+      if (!p.buffer.isEmpty() && !parseBufferAsPort(p)) {
+        return false;
+      }
+
+      p.state = State.PATH_START;
+      p.pointer.decrease();
+    } else {
+      p.errors.add(PortInvalid.INSTANCE);
+      return false;
+    }
+    return true;
+  }
+
+  private static boolean parseBufferAsPort(ParseState p) {
+    int portInt;
+    try {
+      portInt = Integer.parseInt(p.buffer.toString());
+    } catch (NumberFormatException e) {
+      p.errors.add(PortOutOfRange.INSTANCE);
+      return false;
+    }
+
+    if (portInt > Character.MAX_VALUE) {
+      p.errors.add(PortOutOfRange.INSTANCE);
+      return false;
+    }
+
+    char portChar = (char) portInt;
+
+    if (
+        Optional.ofNullable(DEFAULT_PORTS.get(p.scheme))
+            .filter(isEqual(portChar))
+            .isPresent()
+    ) {
+      p.port = null;
+    } else {
+      p.port = portChar;
+    }
+
+    p.clearBuffer();
+    return true;
+  }
+
+  private static boolean fileState(ParseState p, int c) {
+    p.scheme = "file";
+    p.host = new Empty();
+
+    if (c == '/' || c == '\\') {
+      if (c == '\\') {
+        p.errors.add(InvalidReverseSolidus.INSTANCE);
+      }
+      p.state = State.FILE_SLASH;
+    } else if (p.baseHasScheme("file")) {
+      Url base = p.base.get();
+
+      p.host = base.host().orElse(null);
+      p.copyPath(base);
+      p.copyQuery(base);
+
+      if (c == '?') {
+        p.startQuery();
+        p.state = State.QUERY;
+      } else if (c == '#') {
+        p.startFragment();
+        p.state = State.FRAGMENT;
+      } else if (c != Pointer.EOF) {
+        p.query = null;
+
+        if (!p.pointer.doesRemainingStartWithWindowsDriveLetter()) {
+          p.shortenPath();
+        } else {
+          p.errors.add(FileInvalidWindowsDriveLetter.INSTANCE);
+          p.path().clear();
         }
-        case OPAQUE_PATH -> {
-          PointedAt pointedAt = pointer.pointedAt();
-          if (pointedAt instanceof CodePoint cp && cp.codePoint() == '?') {
-            query = new StringBuilder();
-            state = State.QUERY;
-          } else if (pointedAt instanceof CodePoint cp && cp.codePoint() == '#') {
-            fragment = new StringBuilder();
-            state = State.FRAGMENT;
-          } else {
-            if (pointedAt instanceof CodePoint cp && !isUrlCodePoint(cp.codePoint()) && cp.codePoint() != '%') {
-              errors.add(new InvalidUrlUnit(Character.toString(cp.codePoint())));
-            }
-            if (pointedAt instanceof CodePoint cp && cp.codePoint() == '%' && !pointer.doesRemainingStartWith("%d%d")) {
-              errors.add(new InvalidUrlUnit("Unexpected %"));
-            }
-            if (pointedAt instanceof CodePoint cp) {
-              path = path.append(PercentEncoder.utf8PercentEncode(cp.codePoint(), PercentEncoder.C0_CONTROL));
-            }
+
+        p.state = State.PATH;
+        p.pointer.decrease();
+      }
+    } else {
+      p.state = State.PATH;
+      p.pointer.decrease();
+    }
+    return true;
+  }
+
+  private static boolean fileSlashState(ParseState p, int c) {
+    if (c == '/' || c == '\\') {
+      if (c == '\\') {
+        p.errors.add(InvalidReverseSolidus.INSTANCE);
+      }
+      p.state = State.FILE_HOST;
+    } else {
+      if (p.baseHasScheme("file")) {
+        Url base = p.base.get();
+        p.host = base.host().orElse(null);
+
+        if (
+            !p.pointer.doesRemainingStartWithWindowsDriveLetter()
+        ) {
+          String baseFirstPathSegment = ((NonOpaque) base.path()).segments().get(0);
+
+          if (isNormalizedWindowsDriveLetter(baseFirstPathSegment)) {
+            p.path().add(baseFirstPathSegment);
           }
         }
-        case QUERY -> {
-          PointedAt pointedAt = pointer.pointedAt();
-
-          if (pointedAt instanceof Eof || (pointedAt instanceof CodePoint cp && cp.codePoint() == '#')) {
-            CharacterSet queryPercentEncodeSet =
-                SPECIAL_SCHEMES.contains(scheme) ?
-                    PercentEncoder.SPECIAL_QUERY :
-                    PercentEncoder.QUERY;
-            query.append(PercentEncoder.utf8PercentEncode(buffer.toString(), queryPercentEncodeSet));
-            buffer.delete(0, buffer.length());
-
-            if (pointedAt instanceof CodePoint) {
-              fragment = new StringBuilder();
-              state = State.FRAGMENT;
-            }
-          } else {
-            int c;
-            if (pointedAt instanceof CodePoint cp) {
-              c = cp.codePoint();
-            } else {
-              throw new IllegalStateException("Must be code point here!");
-            }
-
-            if (!isUrlCodePoint(c) && c != '%') {
-              errors.add(new InvalidUrlUnit(Character.toString(c)));
-            }
-            if (c == '%' && !pointer.doesRemainingStartWith("%d%d")) {
-              errors.add(new InvalidUrlUnit("Unexpected %"));
-            }
-            buffer.appendCodePoint(c);
-          }
+      }
+      p.state = State.PATH;
+      p.pointer.decrease();
+    }
+    return true;
+  }
+
+  private static boolean fileHostState(ParseState p, int c) {
+    if (c == Pointer.EOF || c == '/' || c == '\\' || c == '?' || c == '#') {
+      p.pointer.decrease();
+
+      if (isWindowsDriveLetter(p.buffer.toString())) {
+        p.errors.add(FileInvalidWindowsDriveLetterHost.INSTANCE);
+        p.state = State.PATH;
+      } else if (p.buffer.isEmpty()) {
+        p.host = new Empty();
+        p.state = State.PATH_START;
+      } else {
+        if (!parseBufferAsHost(p)) {
+          return false;
         }
-        case FRAGMENT -> {
-          if (pointer.pointedAt() instanceof CodePoint cp) {
-            var c = cp.codePoint();
-            if (!isUrlCodePoint(c) && c != '%') {
-              errors.add(new InvalidUrlUnit(Character.toString(c)));
-            }
-            if (c == '%' && !pointer.doesRemainingStartWith("%d%d")) {
-              errors.add(new InvalidUrlUnit("Unexpected %"));
-            }
-
-            fragment.append(PercentEncoder.utf8PercentEncode(c, PercentEncoder.FRAGMENT));
-          }
+
+        if (p.host instanceof Domain d && d.domain().equals("localhost")) {
+          p.host = new Empty();
         }
+
+        p.state = State.PATH_START;
       }
+    } else {
+      p.buffer.appendCodePoint(c);
+    }
+    return true;
+  }
 
-      if (pointer.pointedAt() instanceof Eof) {
-        break;
-      } else {
-        pointer.increase();
+  private static boolean pathStartState(ParseState p, int c) {
+    if (p.isSpecial()) {
+      if (c == '\\') {
+        p.errors.add(InvalidReverseSolidus.INSTANCE);
+      }
+      p.state = State.PATH;
+
+      if (c != '/' && c != '\\') {
+        p.pointer.decrease();
+      }
+    } else {
+      if (c == '?') {
+        p.startQuery();
+        p.state = State.QUERY;
+      } else if (c == '#') {
+        p.startFragment();
+        p.state = State.FRAGMENT;
+      } else if (c != Pointer.EOF) {
+        p.state = State.PATH;
+        if (c != '/') {
+          p.pointer.decrease();
+        }
       }
     }
+    return true;
+  }
 
-    return new Success(new Url(scheme, username.toString(), password.toString(), host, port, path, query == null ? null : query.toString(), fragment == null ? null : fragment.toString()));
+  private static boolean pathState(ParseState p, int c) {
+    boolean isSpecialBackslash = p.isSpecial() && c == '\\';
+    if (c == Pointer.EOF || c == '/' || isSpecialBackslash || c == '?' || c == '#') {
+      if (isSpecialBackslash) {
+        p.errors.add(InvalidReverseSolidus.INSTANCE);
+      }
+
+      appendBufferAsPathSegment(p, c == '/' || isSpecialBackslash);
+      p.clearBuffer();
+
+      if (c == '?') {
+        p.startQuery();
+        p.state = State.QUERY;
+      } else if (c == '#') {
+        p.startFragment();
+        p.state = State.FRAGMENT;
+      }
+    } else if (!p.pointer.appendRun(p.buffer, PATH_COPY_TABLE)) {
+      validateUrlUnit(p, c);
+      p.pointer.appendPercentEncoded(p.buffer, PercentEncoder.PATH);
+    }
+    return true;
   }
 
-  private String removeControlAndWhitespaceCharacters(String urlStr, List<ValidationError> errors) {
-    if (urlStr.isEmpty()) {
-      return urlStr;
+  private static void appendBufferAsPathSegment(ParseState p, boolean atSlash) {
+    StringBuilder buffer = p.buffer;
+    if (isDotSegment(buffer, 2)) {
+      p.shortenPath();
+
+      if (!atSlash) {
+        p.path().add("");
+      }
+    } else if (isDotSegment(buffer, 1)) {
+      if (!atSlash) {
+        p.path().add("");
+      }
+    } else {
+      if (
+          p.scheme.equals("file") &&
+              p.path().isEmpty() &&
+              isWindowsDriveLetter(buffer)
+      ) {
+        buffer.setCharAt(1, ':');
+      }
+      p.path().add(buffer);
     }
+  }
 
-    int prefixEndIndex = 0;
-    while (prefixEndIndex < urlStr.length()) {
-      int codePoint = urlStr.codePointAt(prefixEndIndex);
-      if (!isC0ControlOrSpace(codePoint)) {
-        break;
+  /**
+   * @return whether the segment is made of exactly the given number of dots, each either {@code .}
+   * or a case-insensitive {@code %2e}
+   */
+  private static boolean isDotSegment(CharSequence segment, int dots) {
+    int i = 0;
+    int count = 0;
+    while (i < segment.length()) {
+      if (segment.charAt(i) == '.') {
+        i++;
+      } else if (
+          segment.charAt(i) == '%' &&
+              i + 2 < segment.length() &&
+              segment.charAt(i + 1) == '2' &&
+              (segment.charAt(i + 2) == 'e' || segment.charAt(i + 2) == 'E')
+      ) {
+        i += 3;
+      } else {
+        return false;
       }
+      count++;
+    }
+    return count == dots;
+  }
 
-      prefixEndIndex += Character.charCount(codePoint);
+  private static boolean opaquePathState(ParseState p, int c) {
+    if (c == '?') {
+      p.startQuery();
+      p.state = State.QUERY;
+    } else if (c == '#') {
+      p.startFragment();
+      p.state = State.FRAGMENT;
+    } else if (c != Pointer.EOF && !p.pointer.appendRun(p.opaquePath, OPAQUE_PATH_COPY_TABLE)) {
+      validateUrlUnit(p, c);
+      p.pointer.appendPercentEncoded(p.opaquePath, PercentEncoder.C0_CONTROL);
     }
+    return true;
+  }
 
-    int suffixStartIndex = urlStr.length();
-    while (suffixStartIndex > 0) {
-      int codePoint = urlStr.codePointBefore(suffixStartIndex);
-      if (!isC0ControlOrSpace(codePoint)) {
-        break;
+  private static boolean queryState(ParseState p, int c) {
+    if (c == '#') {
+      p.startFragment();
+      p.state = State.FRAGMENT;
+    } else if (c != Pointer.EOF) {
+      boolean isSpecial = p.isSpecial();
+      if (!p.pointer.appendRun(p.query, isSpecial ? SPECIAL_QUERY_COPY_TABLE : QUERY_COPY_TABLE)) {
+        validateUrlUnit(p, c);
+        p.pointer.appendPercentEncoded(p.query, isSpecial ? PercentEncoder.SPECIAL_QUERY : PercentEncoder.QUERY);
       }
+    }
+    return true;
+  }
 
-      suffixStartIndex -= Character.charCount(codePoint);
+  private static boolean fragmentState(ParseState p, int c) {
+    if (c != Pointer.EOF && !p.pointer.appendRun(p.fragment, FRAGMENT_COPY_TABLE)) {
+      validateUrlUnit(p, c);
+      p.pointer.appendPercentEncoded(p.fragment, PercentEncoder.FRAGMENT);
     }
+    return true;
+  }
 
-    if (prefixEndIndex > 0 || suffixStartIndex < urlStr.length() - 1) {
-      errors.add(new InvalidUrlUnit("leading or trailing C0 control or space"));
+  private static void validateUrlUnit(ParseState p, int c) {
+    if (!p.errors.isRecording()) {
+      return;
+    }
+    if (!isUrlCodePoint(c) && c != '%') {
+      p.errors.addInvalidUrlUnit(c);
     }
+    if (c == '%' && !p.pointer.doesRemainingStartWith(Pointer.TWO_ASCII_HEX_DIGITS)) {
+      p.errors.add(InvalidUrlUnit.UNEXPECTED_PERCENT);
+    }
+  }
 
-    if (prefixEndIndex < suffixStartIndex) {
-      urlStr = urlStr.substring(prefixEndIndex, suffixStartIndex);
-    } else {
-      urlStr = "";
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private static Optional<Host> parseHost(
+      String input,
+      boolean isOpaque,
+      List<ValidationError> errors,
+      Optional<HostCache> hostCache
+  ) {
+    if (hostCache.isPresent()) {
+      return hostCache.get().parseHost(input, isOpaque, errors);
+    }
+    return HostParser.parseHost(input, isOpaque, errors);
+  }
+
+  /**
+   * Trims leading and trailing C0 controls and spaces by narrowing the range, and only copies the
+   * input if it has tabs or newlines to remove.
+   */
+  private static Pointer removeControlAndWhitespaceCharacters(
+      CharSequence input,
+      int start,
+      int end,
+      List<ValidationError> errors
+  ) {
+    return removeControlAndWhitespaceCharacters(input, start, end, errors, new Pointer());
+  }
+
+  /**
+   * Like {@link #removeControlAndWhitespaceCharacters(CharSequence, int, int, List)}, but points
+   * the given pointer at the result instead of allocating a new one.
+   */
+  private static Pointer removeControlAndWhitespaceCharacters(
+      CharSequence input,
+      int start,
+      int end,
+      List<ValidationError> errors,
+      Pointer pointer
+  ) {
+    if (start == end) {
+      return pointer.reset(input, start, end);
+    }
+
+    int prefixEndIndex = start;
+    while (prefixEndIndex < end && isC0ControlOrSpace(input.charAt(prefixEndIndex))) {
+      prefixEndIndex++;
+    }
+
+    int suffixStartIndex = end;
+    while (suffixStartIndex > prefixEndIndex && isC0ControlOrSpace(input.charAt(suffixStartIndex - 1))) {
+      suffixStartIndex--;
+    }
+
+    if (prefixEndIndex > start || suffixStartIndex < end - 1) {
+      errors.add(InvalidUrlUnit.LEADING_OR_TRAILING_C0_CONTROL_OR_SPACE);
     }
 
-    StringBuilder sb = new StringBuilder(urlStr.length());
     boolean hasTabOrNewline = false;
-    for (int i = 0; i < urlStr.length(); i++) {
-      char c = urlStr.charAt(i);
+    for (int i = prefixEndIndex; i < suffixStartIndex; i++) {
+      if (isAsciiTabOrNewline(input.charAt(i))) {
+        hasTabOrNewline = true;
+        break;
+      }
+    }
+    if (!hasTabOrNewline) {
+      return pointer.reset(input, prefixEndIndex, suffixStartIndex);
+    }
+
+    errors.add(InvalidUrlUnit.TAB_OR_NEWLINE);
+    StringBuilder sb = new StringBuilder(suffixStartIndex - prefixEndIndex);
+    for (int i = prefixEndIndex; i < suffixStartIndex; i++) {
+      char c = input.charAt(i);
       if (!isAsciiTabOrNewline(c)) {
         sb.append(c);
+      }
+    }
+    return pointer.reset(sb, 0, sb.length());
+  }
+
+  /**
+   * The byte equivalent of {@link #removeControlAndWhitespaceCharacters}, which works because C0
+   * controls and spaces are all single bytes in UTF-8.
+   */
+  private static Utf8Pointer removeControlAndWhitespaceBytes(
+      Utf8Pointer bytes,
+      List<ValidationError> errors
+  ) {
+    int start = bytes.start();
+    int end = bytes.end();
+
+    int trimmedStart = start;
+    while (trimmedStart < end && isC0ControlOrSpace(bytes.byteAt(trimmedStart))) {
+      trimmedStart++;
+    }
+
+    int trimmedEnd = end;
+    while (trimmedEnd > trimmedStart && isC0ControlOrSpace(bytes.byteAt(trimmedEnd - 1))) {
+      trimmedEnd--;
+    }
+
+    if (start < end && (trimmedStart > start || trimmedEnd < end - 1)) {
+      errors.add(InvalidUrlUnit.LEADING_OR_TRAILING_C0_CONTROL_OR_SPACE);
+    }
+
+    int tabsAndNewlines = 0;
+    for (int i = trimmedStart; i < trimmedEnd; i++) {
+      if (isAsciiTabOrNewline(bytes.byteAt(i))) {
+        tabsAndNewlines++;
+      }
+    }
+    if (tabsAndNewlines == 0) {
+      return bytes.narrow(trimmedStart, trimmedEnd);
+    }
+
+    errors.add(InvalidUrlUnit.TAB_OR_NEWLINE);
+    byte[] stripped = new byte[trimmedEnd - trimmedStart - tabsAndNewlines];
+    int length = 0;
+    for (int i = trimmedStart; i < trimmedEnd; i++) {
+      byte b = bytes.byteAt(i);
+      if (!isAsciiTabOrNewline(b)) {
+        stripped[length++] = b;
+      }
+    }
+    return Utf8Pointer.of(stripped, 0, length);
+  }
+
+  /**
+   * The mutable state shared by the state handlers over the course of one parse. Its scratch
+   * buffers can be reused from one parse to the next by resetting it.
+   */
+  static final class ParseState {
+    InputPointer pointer;
+    Optional<Url> base;
+    Optional<HostCache> hostCache;
+    ValidationErrors errors;
+
+    State state;
+    final StringBuilder buffer = new StringBuilder();
+    boolean atSignSeen;
+    boolean insideBrackets;
+    boolean passwordTokenSeen;
+    /**
+     * Whether to stop once the state machine reaches the path, since nothing from there on can
+     * fail. Credentials aren't built either, leaving just the scheme, host and port.
+     */
+    boolean stopAtPath;
+
+    String scheme;
+    /** The username, or null if there hasn't been one yet; see {@link #username()}. */
+    private StringBuilder username;
+    /** The password, or null if there hasn't been one yet; see {@link #password()}. */
+    private StringBuilder password;
+    Host host;
+    Character port;
+    /** The path, unless it's opaque, or null if nothing's been put in it yet; see {@link #path()}. */
+    private PathBuilder path;
+    /** The opaque path, or null if the path isn't opaque; otherwise it's {@link #opaquePathScratch}. */
+    StringBuilder opaquePath;
+    /** The query, or null if there isn't one yet; otherwise it's {@link #queryScratch}. */
+    StringBuilder query;
+    /** The fragment, or null if there isn't one yet; otherwise it's {@link #fragmentScratch}. */
+    StringBuilder fragment;
+
+    // the rest is only created once it's needed, so a one-off parse allocates just what its URL uses
+    private StringBuilder queryScratch;
+    private StringBuilder fragmentScratch;
+    private StringBuilder opaquePathScratch;
+    private UrlSerializer serializer;
+    /**
+     * Every scratch buffer, kept in one place so their capacity can be tracked and trimmed, or null
+     * if the state isn't {@linkplain #reusable() reusable}.
+     */
+    private StringBuilder[] scratch;
+    /** The pointer reused for each input, or null if the state isn't reusable. */
+    Pointer inputPointer;
+
+    private ParseState() {}
+
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    ParseState(
+        InputPointer pointer,
+        Optional<Url> base,
+        Optional<HostCache> hostCache,
+        ValidationErrors errors
+    ) {
+      reset(pointer, base, hostCache, errors);
+    }
+
+    /**
+     * @return a state for parsing one input after another, such as for a {@link UrlParserContext},
+     * with every scratch buffer and an input pointer created up front to be reused
+     */
+    static ParseState reusable() {
+      ParseState p = new ParseState();
+      p.username = new StringBuilder();
+      p.password = new StringBuilder();
+      p.queryScratch = new StringBuilder();
+      p.fragmentScratch = new StringBuilder();
+      p.opaquePathScratch = new StringBuilder();
+      p.serializer = new UrlSerializer();
+      p.scratch = new StringBuilder[] {
+          p.buffer,
+          p.username,
+          p.password,
+          p.queryScratch,
+          p.fragmentScratch,
+          p.opaquePathScratch,
+          p.path().segments(),
+          p.serializer.output,
+      };
+      p.inputPointer = new Pointer();
+      return p;
+    }
+
+    /**
+     * Readies the state for a new parse, keeping the scratch buffers' capacity.
+     */
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    void reset(
+        InputPointer pointer,
+        Optional<Url> base,
+        Optional<HostCache> hostCache,
+        ValidationErrors errors
+    ) {
+      this.pointer = pointer;
+      this.base = base;
+      this.hostCache = hostCache;
+      this.errors = errors;
+
+      state = State.SCHEME_START;
+      buffer.setLength(0);
+      atSignSeen = false;
+      insideBrackets = false;
+      passwordTokenSeen = false;
+      stopAtPath = false;
+
+      scheme = "";
+      clearCredentials();
+      host = null;
+      port = null;
+      if (path != null) {
+        path.clear();
+      }
+      opaquePath = null;
+      query = null;
+      fragment = null;
+    }
+
+    /**
+     * @return the total capacity of the scratch buffers
+     */
+    int scratchCapacity() {
+      int capacity = 0;
+      for (StringBuilder builder : scratch) {
+        capacity += builder.capacity();
+      }
+      return capacity;
+    }
+
+    int scratchBufferCount() {
+      return scratch.length;
+    }
+
+    /**
+     * Shrinks the scratch buffers of a reusable state back down to the given capacity each, if
+     * they've grown past it.
+     */
+    void shrinkScratch(int capacity) {
+      for (StringBuilder builder : scratch) {
+        if (builder.capacity() > capacity) {
+          builder.setLength(0);
+          builder.trimToSize();
+          builder.ensureCapacity(capacity);
+        }
+      }
+    }
+
+    void startOpaquePath() {
+      if (opaquePathScratch == null) {
+        opaquePathScratch = new StringBuilder();
+      }
+      opaquePath = opaquePathScratch;
+      opaquePath.setLength(0);
+    }
+
+    /**
+     * Starts the path off as the base's path. A non-opaque path is shared with the base rather than
+     * copied.
+     */
+    void copyPath(Url base) {
+      if (base.hasOpaquePath()) {
+        if (path != null) {
+          path.clear();
+        }
+        startOpaquePath();
+        opaquePath.append(base.path().toString());
       } else {
-        hasTabOrNewline = true;
+        opaquePath = null;
+        base.sharePath(path());
+      }
+    }
+
+    /**
+     * Shortens the path, in place.
+     *
+     * @see UrlPath.NonOpaque#shorten
+     */
+    void shortenPath() {
+      if (
+          scheme.equals("file") &&
+              path().hasSingleSegment() &&
+              isNormalizedWindowsDriveLetter(path.first())
+      ) {
+        return;
+      }
+      path().removeLast();
+    }
+
+    StringBuilder startQuery() {
+      if (queryScratch == null) {
+        queryScratch = new StringBuilder();
+      }
+      query = queryScratch;
+      query.setLength(0);
+      return query;
+    }
+
+    StringBuilder startFragment() {
+      if (fragmentScratch == null) {
+        fragmentScratch = new StringBuilder();
+      }
+      fragment = fragmentScratch;
+      fragment.setLength(0);
+      return fragment;
+    }
+
+    void copyQuery(Url base) {
+      Optional<String> baseQuery = base.query();
+      if (baseQuery.isPresent()) {
+        startQuery().append(baseQuery.get());
+      } else {
+        query = null;
+      }
+    }
+
+    PathBuilder path() {
+      if (path == null) {
+        path = new PathBuilder();
+      }
+      return path;
+    }
+
+    StringBuilder username() {
+      if (username == null) {
+        username = new StringBuilder();
+      }
+      return username;
+    }
+
+    StringBuilder password() {
+      if (password == null) {
+        password = new StringBuilder();
+      }
+      return password;
+    }
+
+    void copyCredentials(Url base) {
+      clearCredentials();
+      String baseUsername = base.username();
+      if (!baseUsername.isEmpty()) {
+        username().append(baseUsername);
+      }
+      String basePassword = base.password();
+      if (!basePassword.isEmpty()) {
+        password().append(basePassword);
+      }
+    }
+
+    private void clearCredentials() {
+      if (username != null) {
+        username.setLength(0);
+      }
+      if (password != null) {
+        password.setLength(0);
+      }
+    }
+
+    boolean isSpecial() {
+      return SPECIAL_SCHEMES.contains(scheme);
+    }
+
+    boolean baseHasScheme(String scheme) {
+      return base.isPresent() && base.get().hasScheme(scheme);
+    }
+
+    boolean isEndOfAuthority(int c) {
+      return c == Pointer.EOF || c == '/' || c == '?' || c == '#' || (c == '\\' && isSpecial());
+    }
+
+    boolean isDone() {
+      return pointer.codePoint() == Pointer.EOF || (stopAtPath && state.compareTo(State.PATH_START) >= 0);
+    }
+
+    void clearBuffer() {
+      buffer.setLength(0);
+    }
+
+    void visit(UrlVisitor visitor) {
+      UrlSerializer.visitBeforePath(
+          visitor,
+          scheme,
+          username == null ? "" : username,
+          password == null ? "" : password,
+          host,
+          port
+      );
+      if (opaquePath != null) {
+        visitor.visitOpaquePath(opaquePath);
+      } else if (path != null) {
+        path.visit(visitor);
+      }
+      UrlSerializer.visitAfterPath(visitor, query, fragment);
+    }
+
+    UrlSerializer serializer() {
+      if (serializer == null) {
+        serializer = new UrlSerializer();
       }
+      return serializer;
     }
 
-    if (hasTabOrNewline) {
-      errors.add(new InvalidUrlUnit("tab or newline"));
+    Url toUrl() {
+      UrlSerializer serializer = serializer();
+      serializer.reset();
+      visit(serializer);
+      return new Url(serializer);
     }
-    return sb.toString();
   }
 
+  /**
+   * The states a URL is parsed through. Those from {@link #PATH_START} on are only reached once
+   * the scheme, host and port are final.
+   */
   private enum State {
     SCHEME_START,
     SCHEME,
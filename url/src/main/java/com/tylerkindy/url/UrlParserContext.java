@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import com.tylerkindy.url.UrlParser.ParseState;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Scratch space for parsing many URLs one after another, such as in a request loop. The parser's
+ * buffers are kept and reused from one parse to the next, so a successful parse only allocates
+ * what ends up in its {@link Url}.
+ *
+ * <p>A context isn't thread-safe. Rather than sharing one or keeping one per thread, create one
+ * wherever a batch of URLs is parsed, which also works with virtual threads.
+ */
+public final class UrlParserContext {
+  /** The capacity the scratch buffers are never shrunk below. */
+  private static final int MIN_CAPACITY = 64;
+
+  private final ParseOptions options;
+  private final ParseState state = ParseState.reusable();
+  /** An exponential moving average of recent input lengths. */
+  private int averageLength = MIN_CAPACITY;
+
+  private UrlParserContext(ParseOptions options) {
+    this.options = options;
+  }
+
+  public static UrlParserContext create() {
+    return create(ParseOptions.defaults());
+  }
+
+  public static UrlParserContext create(ParseOptions options) {
+    return new UrlParserContext(options);
+  }
+
+  public UrlParseResult parse(CharSequence input) {
+    return parse(input, 0, input.length(), Optional.empty());
+  }
+
+  public UrlParseResult parse(CharSequence input, Url base) {
+    return parse(input, 0, input.length(), Optional.of(base));
+  }
+
+  /**
+   * Parses the URL from the chars in {@code [start, end)} of the input, without copying them into
+   * a string first.
+   */
+  public UrlParseResult parse(CharSequence input, int start, int end) {
+    Objects.checkFromToIndex(start, end, input.length());
+    return parse(input, start, end, Optional.empty());
+  }
+
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private UrlParseResult parse(CharSequence input, int start, int end, Optional<Url> base) {
+    UrlParseResult result = UrlParser.INSTANCE.parse(input, start, end, base, options, state);
+    adaptScratch(end - start);
+    return result;
+  }
+
+  /**
+   * Shrinks the scratch buffers once they've grown well past what recent inputs needed, so one
+   * unusually long URL doesn't pin its buffers for the life of the context.
+   */
+  private void adaptScratch(int inputLength) {
+    averageLength += (inputLength - averageLength) / 8;
+
+    int capacity = Math.max(MIN_CAPACITY, averageLength * 2);
+    if (state.scratchCapacity() > state.scratchBufferCount() * capacity * 2) {
+      state.shrinkScratch(capacity);
+    }
+  }
+}
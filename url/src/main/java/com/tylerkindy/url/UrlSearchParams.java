@@ -0,0 +1,331 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import com.google.common.collect.ImmutableListMultimap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The name-value pairs of a URL's query, parsed as application/x-www-form-urlencoded.
+ *
+ * <p>Parsing only records where each pair sits in the raw query, and names and values are decoded
+ * the first time they're read. Once there are enough pairs for it to pay off, looking a name up
+ * builds a hash index of them.
+ *
+ * <p>It's immutable: each mutation returns a new {@link Url} with every pair re-serialized by the
+ * application/x-www-form-urlencoded serializer. Pairs whose raw form already is what the
+ * serializer would write are copied over as-is rather than decoded and encoded again.
+ *
+ * @see <a href="https://url.spec.whatwg.org/#interface-urlsearchparams">URLSearchParams</a>
+ */
+public final class UrlSearchParams {
+  /** Below this many pairs, lookups scan them instead of building an index. */
+  private static final int INDEX_THRESHOLD = 16;
+
+  private final Url url;
+  /** The raw query, or the empty string if there isn't one. */
+  private final String query;
+  /** For each pair, the index it starts at, the index its name ends at, and the index it ends at. */
+  private final int[] bounds;
+
+  // Decoded names and values, and the name index, computed on first access. Racing readers at
+  // worst decode or index the same pairs again.
+  private final String[] names;
+  private final String[] values;
+  private ImmutableListMultimap<String, Integer> index;
+
+  UrlSearchParams(Url url) {
+    this.url = url;
+    this.query = url.query().orElse("");
+
+    int[] bounds = new int[24];
+    int size = 0;
+    int start = 0;
+    while (start <= query.length()) {
+      int end = query.indexOf('&', start);
+      if (end < 0) {
+        end = query.length();
+      }
+
+      if (end > start) {
+        if (size + 3 > bounds.length) {
+          bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        int equals = query.indexOf('=', start);
+        bounds[size++] = start;
+        bounds[size++] = equals >= 0 && equals < end ? equals : end;
+        bounds[size++] = end;
+      }
+      start = end + 1;
+    }
+
+    this.bounds = Arrays.copyOf(bounds, size);
+    this.names = new String[size / 3];
+    this.values = new String[size / 3];
+  }
+
+  public int size() {
+    return names.length;
+  }
+
+  /**
+   * @return the decoded name of the pair at the index
+   */
+  public String name(int index) {
+    String name = names[index];
+    if (name == null) {
+      name = PercentEncoder.formDecode(query, bounds[index * 3], bounds[index * 3 + 1]);
+      names[index] = name;
+    }
+    return name;
+  }
+
+  /**
+   * @return the decoded value of the pair at the index
+   */
+  public String value(int index) {
+    String value = values[index];
+    if (value == null) {
+      int nameEnd = bounds[index * 3 + 1];
+      int end = bounds[index * 3 + 2];
+      value = nameEnd == end ? "" : PercentEncoder.formDecode(query, nameEnd + 1, end);
+      values[index] = value;
+    }
+    return value;
+  }
+
+  /**
+   * @return the value of the first pair with the name
+   */
+  public Optional<String> get(String name) {
+    if (size() < INDEX_THRESHOLD) {
+      for (int i = 0; i < size(); i++) {
+        if (name(i).equals(name)) {
+          return Optional.of(value(i));
+        }
+      }
+      return Optional.empty();
+    }
+
+    List<Integer> indexes = index().get(name);
+    return indexes.isEmpty() ? Optional.empty() : Optional.of(value(indexes.get(0)));
+  }
+
+  /**
+   * @return the values of every pair with the name, in order
+   */
+  public List<String> getAll(String name) {
+    List<String> all = new ArrayList<>();
+    if (size() < INDEX_THRESHOLD) {
+      for (int i = 0; i < size(); i++) {
+        if (name(i).equals(name)) {
+          all.add(value(i));
+        }
+      }
+    } else {
+      for (int i : index().get(name)) {
+        all.add(value(i));
+      }
+    }
+    return all;
+  }
+
+  public boolean has(String name) {
+    return get(name).isPresent();
+  }
+
+  private ImmutableListMultimap<String, Integer> index() {
+    ImmutableListMultimap<String, Integer> index = this.index;
+    if (index == null) {
+      ImmutableListMultimap.Builder<String, Integer> builder = ImmutableListMultimap.builder();
+      for (int i = 0; i < size(); i++) {
+        builder.put(name(i), i);
+      }
+      index = builder.build();
+      this.index = index;
+    }
+    return index;
+  }
+
+  /**
+   * Sets the first pair with the name to the value, and removes any others with it. If there
+   * isn't one, the pair is added to the end.
+   *
+   * @return the URL with the new query
+   */
+  public Url set(String name, String value) {
+    StringBuilder output = new StringBuilder(query.length() + name.length() + value.length() + 2);
+    boolean found = false;
+    for (int i = 0; i < size(); i++) {
+      if (!name(i).equals(name)) {
+        appendSerialized(output, i);
+      } else if (!found) {
+        appendEncoded(output, name, value);
+        found = true;
+      }
+    }
+    if (!found) {
+      appendEncoded(output, name, value);
+    }
+    return withQuery(output);
+  }
+
+  /**
+   * Adds a pair to the end.
+   *
+   * @return the URL with the new query
+   */
+  public Url append(String name, String value) {
+    StringBuilder output = new StringBuilder(query.length() + name.length() + value.length() + 2);
+    for (int i = 0; i < size(); i++) {
+      appendSerialized(output, i);
+    }
+    appendEncoded(output, name, value);
+    return withQuery(output);
+  }
+
+  /**
+   * Removes every pair with the name.
+   *
+   * @return the URL with the new query
+   */
+  public Url delete(String name) {
+    StringBuilder output = new StringBuilder(query.length());
+    for (int i = 0; i < size(); i++) {
+      if (!name(i).equals(name)) {
+        appendSerialized(output, i);
+      }
+    }
+    return withQuery(output);
+  }
+
+  /**
+   * Sorts the pairs by name, comparing UTF-16 code units, and keeping pairs with the same name in
+   * their relative order.
+   *
+   * @return the URL with the new query
+   */
+  public Url sort() {
+    String[] sortedNames = new String[size()];
+    int[] order = new int[size()];
+    for (int i = 0; i < order.length; i++) {
+      sortedNames[i] = name(i);
+      order[i] = i;
+    }
+    mergeSort(order, new int[order.length], 0, order.length, sortedNames);
+
+    StringBuilder output = new StringBuilder(query.length());
+    for (int i : order) {
+      appendSerialized(output, i);
+    }
+    return withQuery(output);
+  }
+
+  /**
+   * Stably sorts {@code [start, end)} of the pair indexes by their names.
+   */
+  private static void mergeSort(int[] order, int[] scratch, int start, int end, String[] names) {
+    if (end - start < 2) {
+      return;
+    }
+    int middle = (start + end) >>> 1;
+    mergeSort(order, scratch, start, middle, names);
+    mergeSort(order, scratch, middle, end, names);
+    if (names[order[middle - 1]].compareTo(names[order[middle]]) <= 0) {
+      return;
+    }
+
+    System.arraycopy(order, start, scratch, start, end - start);
+    int left = start;
+    int right = middle;
+    for (int i = start; i < end; i++) {
+      if (right == end || (left < middle && names[scratch[left]].compareTo(names[scratch[right]]) <= 0)) {
+        order[i] = scratch[left++];
+      } else {
+        order[i] = scratch[right++];
+      }
+    }
+  }
+
+  /**
+   * Appends the pair at the index as the serializer would write it, copying the raw pair if it's
+   * already in that form.
+   */
+  private void appendSerialized(StringBuilder output, int index) {
+    if (isSerialized(index)) {
+      if (!output.isEmpty()) {
+        output.append('&');
+      }
+      output.append(query, bounds[index * 3], bounds[index * 3 + 2]);
+    } else {
+      appendEncoded(output, name(index), value(index));
+    }
+  }
+
+  /**
+   * @return whether the raw pair at the index is exactly what the serializer would write for it:
+   * it has an {@code =}, and nothing else in it would be percent-encoded, with a {@code +} standing
+   * for a space
+   */
+  private boolean isSerialized(int index) {
+    int nameEnd = bounds[index * 3 + 1];
+    int end = bounds[index * 3 + 2];
+    if (nameEnd == end) {
+      return false;
+    }
+    for (int i = bounds[index * 3]; i < end; i++) {
+      char c = query.charAt(i);
+      if (
+          i != nameEnd &&
+              c != '+' &&
+              (c >= 0x80 || PercentEncoder.APPLICATION_X_WWW_FORM_URLENCODED.contains(c))
+      ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void appendEncoded(StringBuilder output, String name, String value) {
+    if (!output.isEmpty()) {
+      output.append('&');
+    }
+    CharacterSet set = PercentEncoder.APPLICATION_X_WWW_FORM_URLENCODED;
+    PercentEncoder.appendUtf8PercentEncoded(output, name, 0, name.length(), set, true);
+    output.append('=');
+    PercentEncoder.appendUtf8PercentEncoded(output, value, 0, value.length(), set, true);
+  }
+
+  private Url withQuery(StringBuilder output) {
+    return url.withQuery(output.isEmpty() ? null : output.toString());
+  }
+
+  /**
+   * @return the serialized query, without a leading {@code ?}
+   */
+  @Override
+  public String toString() {
+    StringBuilder output = new StringBuilder(query.length());
+    for (int i = 0; i < size(); i++) {
+      appendSerialized(output, i);
+    }
+    return output.toString();
+  }
+}
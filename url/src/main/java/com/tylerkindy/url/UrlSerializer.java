@@ -0,0 +1,259 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import com.tylerkindy.url.UrlPath.NonOpaque;
+import com.tylerkindy.url.UrlPath.Opaque;
+import java.util.List;
+
+/**
+ * The visitor that serializes a URL into the href and component offsets a {@link Url} is made of.
+ */
+final class UrlSerializer implements UrlVisitor {
+  final StringBuilder output = new StringBuilder();
+  int protocolEnd;
+  int usernameEnd;
+  int hostStart;
+  int hostEnd;
+  Host host;
+  int port;
+  int pathStart;
+  boolean hasOpaquePath;
+  int queryStart;
+  int fragmentStart;
+
+  private boolean authorityStarted;
+  private boolean hasCredentials;
+  private int segmentCount;
+
+  UrlSerializer() {
+    reset();
+  }
+
+  /**
+   * Creates a serializer whose output starts with room for the given number of chars.
+   */
+  UrlSerializer(int capacity) {
+    output.ensureCapacity(capacity);
+    reset();
+  }
+
+  /**
+   * Readies the serializer for another URL, keeping the output buffer's capacity.
+   */
+  void reset() {
+    output.setLength(0);
+    host = null;
+    port = -1;
+    pathStart = -1;
+    hasOpaquePath = false;
+    queryStart = -1;
+    fragmentStart = -1;
+
+    authorityStarted = false;
+    hasCredentials = false;
+    segmentCount = 0;
+  }
+
+  /**
+   * Reports the components to the visitor, in the order and form described by {@link UrlVisitor}.
+   */
+  static void visit(
+      UrlVisitor visitor,
+      String scheme,
+      CharSequence username,
+      CharSequence password,
+      Host host,
+      Character port,
+      UrlPath path,
+      CharSequence query,
+      CharSequence fragment
+  ) {
+    visitBeforePath(visitor, scheme, username, password, host, port);
+    if (path instanceof Opaque opaque) {
+      visitor.visitOpaquePath(opaque.segment());
+    } else {
+      List<String> segments = ((NonOpaque) path).segments();
+      for (int i = 0; i < segments.size(); i++) {
+        visitor.visitPathSegment(segments.get(i));
+      }
+    }
+    visitAfterPath(visitor, query, fragment);
+  }
+
+  static void visitBeforePath(
+      UrlVisitor visitor,
+      String scheme,
+      CharSequence username,
+      CharSequence password,
+      Host host,
+      Character port
+  ) {
+    visitor.visitScheme(scheme);
+    if (!username.isEmpty()) {
+      visitor.visitUsername(username);
+    }
+    if (!password.isEmpty()) {
+      visitor.visitPassword(password);
+    }
+    if (host != null) {
+      visitor.visitHost(host);
+    }
+    if (port != null) {
+      visitor.visitPort(port);
+    }
+  }
+
+  static void visitAfterPath(UrlVisitor visitor, CharSequence query, CharSequence fragment) {
+    if (query != null) {
+      visitor.visitQuery(query);
+    }
+    if (fragment != null) {
+      visitor.visitFragment(fragment);
+    }
+  }
+
+  @Override
+  public void visitScheme(CharSequence scheme) {
+    output.append(scheme).append(':');
+    protocolEnd = output.length();
+    usernameEnd = protocolEnd;
+    hostStart = protocolEnd;
+    hostEnd = protocolEnd;
+  }
+
+  @Override
+  public void visitUsername(CharSequence username) {
+    startAuthority();
+    output.append(username);
+    usernameEnd = output.length();
+    hasCredentials = true;
+  }
+
+  @Override
+  public void visitPassword(CharSequence password) {
+    startAuthority();
+    output.append(':').append(password);
+    hasCredentials = true;
+  }
+
+  @Override
+  public void visitHost(Host host) {
+    startAuthority();
+    if (hasCredentials) {
+      output.append('@');
+    }
+
+    hostStart = output.length();
+    output.append(host);
+    hostEnd = output.length();
+    this.host = host;
+  }
+
+  @Override
+  public void visitPort(int port) {
+    output.append(':').append(port);
+    this.port = port;
+  }
+
+  @Override
+  public void visitPathSegment(CharSequence segment) {
+    appendPathSegment(segment, 0, segment.length());
+  }
+
+  private void appendPathSegment(CharSequence input, int start, int end) {
+    startPath();
+    if (segmentCount == 1 && host == null && output.length() == pathStart + 1) {
+      // without a host, a path starting with an empty segment would read as an authority
+      output.insert(pathStart, "/.");
+      pathStart += 2;
+    }
+
+    output.append('/').append(input, start, end);
+    segmentCount++;
+  }
+
+  /**
+   * Appends already-serialized path segments in {@code [start, end)} of the input, each with its
+   * leading {@code /}, as if each had been visited in turn.
+   */
+  void visitSerializedPath(CharSequence input, int start, int end) {
+    // the first two segments decide whether the path needs a "/." prefix, so they go one at a time
+    for (int i = 0; i < 2 && start < end; i++) {
+      int segmentEnd = start + 1;
+      while (segmentEnd < end && input.charAt(segmentEnd) != '/') {
+        segmentEnd++;
+      }
+      appendPathSegment(input, start + 1, segmentEnd);
+      start = segmentEnd;
+    }
+
+    if (start < end) {
+      output.append(input, start, end);
+      segmentCount++;
+    }
+  }
+
+  @Override
+  public void visitOpaquePath(CharSequence path) {
+    startPath();
+    output.append(path);
+    hasOpaquePath = true;
+  }
+
+  @Override
+  public void visitQuery(CharSequence query) {
+    visitQuery(query, 0, query.length());
+  }
+
+  /**
+   * Appends the query in {@code [start, end)} of the input.
+   */
+  void visitQuery(CharSequence input, int start, int end) {
+    startPath();
+    queryStart = output.length();
+    output.append('?').append(input, start, end);
+  }
+
+  @Override
+  public void visitFragment(CharSequence fragment) {
+    visitFragment(fragment, 0, fragment.length());
+  }
+
+  /**
+   * Appends the fragment in {@code [start, end)} of the input.
+   */
+  void visitFragment(CharSequence input, int start, int end) {
+    startPath();
+    fragmentStart = output.length();
+    output.append('#').append(input, start, end);
+  }
+
+  private void startAuthority() {
+    if (!authorityStarted) {
+      output.append("//");
+      usernameEnd = output.length();
+      authorityStarted = true;
+    }
+  }
+
+  private void startPath() {
+    if (pathStart < 0) {
+      pathStart = output.length();
+    }
+  }
+}
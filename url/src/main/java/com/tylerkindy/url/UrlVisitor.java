@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+/**
+ * Receives the components of a parsed URL, as an alternative to building a {@link Url}. Once the
+ * whole input has parsed, the components it has are reported in order, already percent-encoded as
+ * they'd be serialized. The char sequences passed in are only valid for the duration of the call.
+ */
+public interface UrlVisitor {
+  default void visitScheme(CharSequence scheme) {}
+
+  /**
+   * Only called if the username isn't empty.
+   */
+  default void visitUsername(CharSequence username) {}
+
+  /**
+   * Only called if the password isn't empty.
+   */
+  default void visitPassword(CharSequence password) {}
+
+  /**
+   * Only called if the URL has a host. Its kind is given by the {@link Host} subtype, and its
+   * serialized value by {@link Host#toString()}.
+   */
+  default void visitHost(Host host) {}
+
+  /**
+   * Only called if the URL has a port other than its scheme's default.
+   */
+  default void visitPort(int port) {}
+
+  /**
+   * Called for each segment of a URL's path, unless it has an opaque path.
+   */
+  default void visitPathSegment(CharSequence segment) {}
+
+  /**
+   * Called instead of {@link #visitPathSegment} if the URL has an opaque path.
+   */
+  default void visitOpaquePath(CharSequence path) {}
+
+  /**
+   * Only called if the URL has a query, which may be empty.
+   */
+  default void visitQuery(CharSequence query) {}
+
+  /**
+   * Only called if the URL has a fragment, which may be empty.
+   */
+  default void visitFragment(CharSequence fragment) {}
+}
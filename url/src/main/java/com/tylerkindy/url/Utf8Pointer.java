@@ -0,0 +1,365 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static com.tylerkindy.url.CharacterUtils.isAsciiAlpha;
+
+import com.tylerkindy.url.Pointer.Prefix;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A cursor over the code points of a range of UTF-8 bytes, held either in an array or in a
+ * {@link ByteBuffer}. The bytes must be well-formed UTF-8, as checked by {@link #isValidUtf8}, so
+ * decoding never has to deal with malformed sequences.
+ */
+abstract sealed class Utf8Pointer implements InputPointer {
+  private int start;
+  private int end;
+
+  /** The index of the current code point's first byte, or start - 1 when pointing nowhere. */
+  private int index;
+
+  private Utf8Pointer(int start, int end) {
+    this.start = start;
+    this.end = end;
+    index = start;
+  }
+
+  static Utf8Pointer of(byte[] bytes, int start, int end) {
+    return new OfArray(bytes, start, end);
+  }
+
+  /**
+   * @return a pointer over the bytes remaining in the buffer, reading them straight out of its
+   * backing array if it has one, and with absolute gets otherwise. The buffer's position is left
+   * unchanged.
+   */
+  static Utf8Pointer of(ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      int start = buffer.arrayOffset() + buffer.position();
+      return new OfArray(buffer.array(), start, start + buffer.remaining());
+    }
+    return new OfBuffer(buffer, buffer.position(), buffer.limit());
+  }
+
+  /**
+   * @return the byte at the given index of the underlying array or buffer
+   */
+  abstract byte byteAt(int index);
+
+  /**
+   * @return the bytes in {@code [start, end)} decoded with the charset
+   */
+  abstract String decode(int start, int end, Charset charset);
+
+  int start() {
+    return start;
+  }
+
+  int end() {
+    return end;
+  }
+
+  /**
+   * Narrows the pointer to the bytes in {@code [start, end)} and moves it to the first of them.
+   */
+  Utf8Pointer narrow(int start, int end) {
+    this.start = start;
+    this.end = end;
+    index = start;
+    return this;
+  }
+
+  String decode(Charset charset) {
+    return decode(start, end, charset);
+  }
+
+  boolean isAscii() {
+    for (int i = start; i < end; i++) {
+      if (byteAt(i) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return whether the bytes are well-formed UTF-8, without overlong encodings, surrogates or
+   * code points past U+10FFFF
+   */
+  boolean isValidUtf8() {
+    int i = start;
+    while (i < end) {
+      int b0 = byteAt(i) & 0xFF;
+      if (b0 < 0x80) {
+        i++;
+        continue;
+      }
+
+      int length;
+      int min;
+      if (b0 >= 0xC2 && b0 <= 0xDF) {
+        length = 2;
+        min = 0x80;
+      } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+        length = 3;
+        min = 0x800;
+      } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+        length = 4;
+        min = 0x10000;
+      } else {
+        return false;
+      }
+
+      if (end - i < length) {
+        return false;
+      }
+
+      int codePoint = b0 & (0xFF >>> (length + 1));
+      for (int j = 1; j < length; j++) {
+        int b = byteAt(i + j) & 0xFF;
+        if ((b & 0xC0) != 0x80) {
+          return false;
+        }
+        codePoint = (codePoint << 6) | (b & 0x3F);
+      }
+
+      if (
+          codePoint < min ||
+              codePoint > Character.MAX_CODE_POINT ||
+              (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)
+      ) {
+        return false;
+      }
+      i += length;
+    }
+    return true;
+  }
+
+  @Override
+  public int codePoint() {
+    if (index >= end) {
+      return Pointer.EOF;
+    }
+    if (index < start) {
+      return Pointer.NOWHERE;
+    }
+
+    int b0 = byteAt(index) & 0xFF;
+    if (b0 < 0x80) {
+      return b0;
+    }
+    if (b0 < 0xE0) {
+      return ((b0 & 0x1F) << 6) | (byteAt(index + 1) & 0x3F);
+    }
+    if (b0 < 0xF0) {
+      return ((b0 & 0x0F) << 12) |
+          ((byteAt(index + 1) & 0x3F) << 6) |
+          (byteAt(index + 2) & 0x3F);
+    }
+    return ((b0 & 0x07) << 18) |
+        ((byteAt(index + 1) & 0x3F) << 12) |
+        ((byteAt(index + 2) & 0x3F) << 6) |
+        (byteAt(index + 3) & 0x3F);
+  }
+
+  @Override
+  public void increase() {
+    if (index >= end) {
+      return;
+    }
+    if (index < start) {
+      index = start;
+      return;
+    }
+    index += sequenceLength(byteAt(index));
+  }
+
+  @Override
+  public void decrease() {
+    if (index < start) {
+      return;
+    }
+    if (index == start) {
+      index = start - 1;
+      return;
+    }
+
+    index--;
+    while (index > start && (byteAt(index) & 0xC0) == 0x80) {
+      // skip back over continuation bytes
+      index--;
+    }
+  }
+
+  @Override
+  public void reset() {
+    index = start;
+  }
+
+  @Override
+  public boolean doesRemainingStartWith(String prefix) {
+    int remainingStart = remainingStart();
+    if (end - remainingStart < prefix.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < prefix.length(); i++) {
+      if ((byteAt(remainingStart + i) & 0xFF) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean doesRemainingStartWith(Prefix prefix) {
+    return prefix.matches(this, remainingStart(), end);
+  }
+
+  @Override
+  public boolean doesRemainingStartWithWindowsDriveLetter() {
+    int remainingLength = end - index;
+    if (remainingLength < 2) {
+      return false;
+    }
+    if (!isAsciiAlpha(byteAt(index))) {
+      return false;
+    }
+
+    int second = byteAt(index + 1);
+    if (second != ':' && second != '|') {
+      return false;
+    }
+
+    if (remainingLength == 2) {
+      return true;
+    }
+
+    int third = byteAt(index + 2);
+    return third == '/' ||
+        third == '\\' ||
+        third == '?' ||
+        third == '#';
+  }
+
+  @Override
+  public void appendPercentEncoded(StringBuilder output, CharacterSet percentEncodeSet) {
+    int length = sequenceLength(byteAt(index));
+    for (int i = index; i < index + length; i++) {
+      PercentEncoder.appendPercentEncodedByte(output, byteAt(i) & 0xFF, percentEncodeSet);
+    }
+  }
+
+  @Override
+  public boolean appendRun(StringBuilder output, boolean[] copyTable) {
+    int runEnd = index;
+    while (runEnd < end) {
+      int b = byteAt(runEnd);
+      // non-ASCII bytes are negative
+      if (b < 0 || b >= copyTable.length || !copyTable[b]) {
+        break;
+      }
+      output.append((char) b);
+      runEnd++;
+    }
+
+    if (runEnd == index) {
+      return false;
+    }
+    index = runEnd - 1;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    int codePoint = codePoint();
+    if (codePoint == Pointer.EOF) {
+      return "EOF";
+    }
+    if (codePoint == Pointer.NOWHERE) {
+      return "Nowhere";
+    }
+    return "'" + Character.toString(codePoint) + "'";
+  }
+
+  private int remainingStart() {
+    if (index < start) {
+      return start;
+    }
+    if (index >= end) {
+      return end;
+    }
+    return index + sequenceLength(byteAt(index));
+  }
+
+  private static int sequenceLength(byte leadByte) {
+    int b0 = leadByte & 0xFF;
+    if (b0 < 0x80) {
+      return 1;
+    }
+    if (b0 < 0xE0) {
+      return 2;
+    }
+    if (b0 < 0xF0) {
+      return 3;
+    }
+    return 4;
+  }
+
+  private static final class OfArray extends Utf8Pointer {
+    private final byte[] bytes;
+
+    OfArray(byte[] bytes, int start, int end) {
+      super(start, end);
+      this.bytes = bytes;
+    }
+
+    @Override
+    byte byteAt(int index) {
+      return bytes[index];
+    }
+
+    @Override
+    String decode(int start, int end, Charset charset) {
+      return new String(bytes, start, end - start, charset);
+    }
+  }
+
+  /**
+   * Reads a buffer without a backing array, like a direct or memory-mapped one, in place.
+   */
+  private static final class OfBuffer extends Utf8Pointer {
+    private final ByteBuffer buffer;
+
+    OfBuffer(ByteBuffer buffer, int start, int end) {
+      super(start, end);
+      this.buffer = buffer;
+    }
+
+    @Override
+    byte byteAt(int index) {
+      return buffer.get(index);
+    }
+
+    @Override
+    String decode(int start, int end, Charset charset) {
+      return charset.decode(buffer.slice(start, end - start)).toString();
+    }
+  }
+}
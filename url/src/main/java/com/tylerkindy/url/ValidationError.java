@@ -16,33 +16,96 @@
 
 package com.tylerkindy.url;
 
+/**
+ * A validation error found while parsing. Errors without any details are shared singletons, named
+ * {@code INSTANCE}.
+ */
 public sealed interface ValidationError {
-  record InvalidUrlUnit(String message) implements ValidationError {}
-  record SpecialSchemeMissingFollowingSolidus() implements ValidationError {}
-  record MissingSchemeNonRelativeUrl() implements ValidationError {}
-  record InvalidReverseSolidus() implements ValidationError {}
-  record InvalidCredentials() implements ValidationError {}
-  record HostMissing() implements ValidationError {}
-  record HostInvalidCodePoint() implements ValidationError {}
-  record Ipv6Unclosed() implements ValidationError {}
-  record Ipv6InvalidCompression() implements ValidationError {}
-  record Ipv6TooManyPieces() implements ValidationError {}
-  record Ipv6MultipleCompression() implements ValidationError {}
-  record Ipv4InIpv6InvalidCodePoint() implements ValidationError {}
-  record Ipv4InIpv6TooManyPieces() implements ValidationError {}
-  record Ipv4InIpv6OutOfRangePart() implements ValidationError {}
-  record Ipv4InIpv6TooFewParts() implements ValidationError {}
-  record Ipv6InvalidCodePoint() implements ValidationError {}
-  record Ipv6TooFewPieces() implements ValidationError {}
-  record PortOutOfRange() implements ValidationError {}
-  record PortInvalid() implements ValidationError {}
-  record FileInvalidWindowsDriveLetter() implements ValidationError {}
-  record FileInvalidWindowsDriveLetterHost() implements ValidationError {}
-  record DomainToAscii() implements ValidationError {}
-  record DomainInvalidCodePoint() implements ValidationError {}
-  record Ipv4EmptyPart() implements ValidationError {}
-  record Ipv4TooManyParts() implements ValidationError {}
-  record Ipv4NonNumericPart() implements ValidationError {}
-  record Ipv4NonDecimalPart() implements ValidationError {}
-  record Ipv4OutOfRangePart() implements ValidationError {}
+  record InvalidUrlUnit(String message) implements ValidationError {
+    static final InvalidUrlUnit UNEXPECTED_PERCENT = new InvalidUrlUnit("Unexpected %");
+    static final InvalidUrlUnit TAB_OR_NEWLINE = new InvalidUrlUnit("tab or newline");
+    static final InvalidUrlUnit LEADING_OR_TRAILING_C0_CONTROL_OR_SPACE =
+        new InvalidUrlUnit("leading or trailing C0 control or space");
+  }
+  record SpecialSchemeMissingFollowingSolidus() implements ValidationError {
+    public static final SpecialSchemeMissingFollowingSolidus INSTANCE = new SpecialSchemeMissingFollowingSolidus();
+  }
+  record MissingSchemeNonRelativeUrl() implements ValidationError {
+    public static final MissingSchemeNonRelativeUrl INSTANCE = new MissingSchemeNonRelativeUrl();
+  }
+  record InvalidReverseSolidus() implements ValidationError {
+    public static final InvalidReverseSolidus INSTANCE = new InvalidReverseSolidus();
+  }
+  record InvalidCredentials() implements ValidationError {
+    public static final InvalidCredentials INSTANCE = new InvalidCredentials();
+  }
+  record HostMissing() implements ValidationError {
+    public static final HostMissing INSTANCE = new HostMissing();
+  }
+  record HostInvalidCodePoint() implements ValidationError {
+    public static final HostInvalidCodePoint INSTANCE = new HostInvalidCodePoint();
+  }
+  record Ipv6Unclosed() implements ValidationError {
+    public static final Ipv6Unclosed INSTANCE = new Ipv6Unclosed();
+  }
+  record Ipv6InvalidCompression() implements ValidationError {
+    public static final Ipv6InvalidCompression INSTANCE = new Ipv6InvalidCompression();
+  }
+  record Ipv6TooManyPieces() implements ValidationError {
+    public static final Ipv6TooManyPieces INSTANCE = new Ipv6TooManyPieces();
+  }
+  record Ipv6MultipleCompression() implements ValidationError {
+    public static final Ipv6MultipleCompression INSTANCE = new Ipv6MultipleCompression();
+  }
+  record Ipv4InIpv6InvalidCodePoint() implements ValidationError {
+    public static final Ipv4InIpv6InvalidCodePoint INSTANCE = new Ipv4InIpv6InvalidCodePoint();
+  }
+  record Ipv4InIpv6TooManyPieces() implements ValidationError {
+    public static final Ipv4InIpv6TooManyPieces INSTANCE = new Ipv4InIpv6TooManyPieces();
+  }
+  record Ipv4InIpv6OutOfRangePart() implements ValidationError {
+    public static final Ipv4InIpv6OutOfRangePart INSTANCE = new Ipv4InIpv6OutOfRangePart();
+  }
+  record Ipv4InIpv6TooFewParts() implements ValidationError {
+    public static final Ipv4InIpv6TooFewParts INSTANCE = new Ipv4InIpv6TooFewParts();
+  }
+  record Ipv6InvalidCodePoint() implements ValidationError {
+    public static final Ipv6InvalidCodePoint INSTANCE = new Ipv6InvalidCodePoint();
+  }
+  record Ipv6TooFewPieces() implements ValidationError {
+    public static final Ipv6TooFewPieces INSTANCE = new Ipv6TooFewPieces();
+  }
+  record PortOutOfRange() implements ValidationError {
+    public static final PortOutOfRange INSTANCE = new PortOutOfRange();
+  }
+  record PortInvalid() implements ValidationError {
+    public static final PortInvalid INSTANCE = new PortInvalid();
+  }
+  record FileInvalidWindowsDriveLetter() implements ValidationError {
+    public static final FileInvalidWindowsDriveLetter INSTANCE = new FileInvalidWindowsDriveLetter();
+  }
+  record FileInvalidWindowsDriveLetterHost() implements ValidationError {
+    public static final FileInvalidWindowsDriveLetterHost INSTANCE = new FileInvalidWindowsDriveLetterHost();
+  }
+  record DomainToAscii() implements ValidationError {
+    public static final DomainToAscii INSTANCE = new DomainToAscii();
+  }
+  record DomainInvalidCodePoint() implements ValidationError {
+    public static final DomainInvalidCodePoint INSTANCE = new DomainInvalidCodePoint();
+  }
+  record Ipv4EmptyPart() implements ValidationError {
+    public static final Ipv4EmptyPart INSTANCE = new Ipv4EmptyPart();
+  }
+  record Ipv4TooManyParts() implements ValidationError {
+    public static final Ipv4TooManyParts INSTANCE = new Ipv4TooManyParts();
+  }
+  record Ipv4NonNumericPart() implements ValidationError {
+    public static final Ipv4NonNumericPart INSTANCE = new Ipv4NonNumericPart();
+  }
+  record Ipv4NonDecimalPart() implements ValidationError {
+    public static final Ipv4NonDecimalPart INSTANCE = new Ipv4NonDecimalPart();
+  }
+  record Ipv4OutOfRangePart() implements ValidationError {
+    public static final Ipv4OutOfRangePart INSTANCE = new Ipv4OutOfRangePart();
+  }
 }
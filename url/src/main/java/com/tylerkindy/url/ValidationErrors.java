@@ -0,0 +1,296 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import com.tylerkindy.url.ParseOptions.Diagnostics;
+import com.tylerkindy.url.ValidationError.DomainInvalidCodePoint;
+import com.tylerkindy.url.ValidationError.DomainToAscii;
+import com.tylerkindy.url.ValidationError.FileInvalidWindowsDriveLetter;
+import com.tylerkindy.url.ValidationError.FileInvalidWindowsDriveLetterHost;
+import com.tylerkindy.url.ValidationError.HostInvalidCodePoint;
+import com.tylerkindy.url.ValidationError.HostMissing;
+import com.tylerkindy.url.ValidationError.InvalidCredentials;
+import com.tylerkindy.url.ValidationError.InvalidReverseSolidus;
+import com.tylerkindy.url.ValidationError.InvalidUrlUnit;
+import com.tylerkindy.url.ValidationError.Ipv4EmptyPart;
+import com.tylerkindy.url.ValidationError.Ipv4InIpv6InvalidCodePoint;
+import com.tylerkindy.url.ValidationError.Ipv4InIpv6OutOfRangePart;
+import com.tylerkindy.url.ValidationError.Ipv4InIpv6TooFewParts;
+import com.tylerkindy.url.ValidationError.Ipv4InIpv6TooManyPieces;
+import com.tylerkindy.url.ValidationError.Ipv4NonDecimalPart;
+import com.tylerkindy.url.ValidationError.Ipv4NonNumericPart;
+import com.tylerkindy.url.ValidationError.Ipv4OutOfRangePart;
+import com.tylerkindy.url.ValidationError.Ipv4TooManyParts;
+import com.tylerkindy.url.ValidationError.Ipv6InvalidCodePoint;
+import com.tylerkindy.url.ValidationError.Ipv6InvalidCompression;
+import com.tylerkindy.url.ValidationError.Ipv6MultipleCompression;
+import com.tylerkindy.url.ValidationError.Ipv6TooFewPieces;
+import com.tylerkindy.url.ValidationError.Ipv6TooManyPieces;
+import com.tylerkindy.url.ValidationError.Ipv6Unclosed;
+import com.tylerkindy.url.ValidationError.MissingSchemeNonRelativeUrl;
+import com.tylerkindy.url.ValidationError.PortInvalid;
+import com.tylerkindy.url.ValidationError.PortOutOfRange;
+import com.tylerkindy.url.ValidationError.SpecialSchemeMissingFollowingSolidus;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Where the parser reports validation errors, according to the {@link Diagnostics} mode. It's a
+ * list so that the host parser and {@link HostCache} can report into it directly, and so it can be
+ * handed out as a result's error list once parsing is done.
+ *
+ * <p>Errors are kept as packed ints, each an error kind plus a payload, and the kinds seen so far
+ * are tracked in a bitmask. Field-less errors map to their shared singletons, and invalid URL
+ * units keep just their code point, so error objects and messages are only built when the list is
+ * read.
+ *
+ * <p>Errors the mode doesn't keep are dropped, but the list remembers that it's
+ * {@linkplain #isTruncated() truncated}, so a result can tell callers its errors are incomplete.
+ */
+final class ValidationErrors extends AbstractList<ValidationError> {
+  private static final List<ValidationError> SINGLETONS = List.of(
+      SpecialSchemeMissingFollowingSolidus.INSTANCE,
+      MissingSchemeNonRelativeUrl.INSTANCE,
+      InvalidReverseSolidus.INSTANCE,
+      InvalidCredentials.INSTANCE,
+      HostMissing.INSTANCE,
+      HostInvalidCodePoint.INSTANCE,
+      Ipv6Unclosed.INSTANCE,
+      Ipv6InvalidCompression.INSTANCE,
+      Ipv6TooManyPieces.INSTANCE,
+      Ipv6MultipleCompression.INSTANCE,
+      Ipv4InIpv6InvalidCodePoint.INSTANCE,
+      Ipv4InIpv6TooManyPieces.INSTANCE,
+      Ipv4InIpv6OutOfRangePart.INSTANCE,
+      Ipv4InIpv6TooFewParts.INSTANCE,
+      Ipv6InvalidCodePoint.INSTANCE,
+      Ipv6TooFewPieces.INSTANCE,
+      PortOutOfRange.INSTANCE,
+      PortInvalid.INSTANCE,
+      FileInvalidWindowsDriveLetter.INSTANCE,
+      FileInvalidWindowsDriveLetterHost.INSTANCE,
+      DomainToAscii.INSTANCE,
+      DomainInvalidCodePoint.INSTANCE,
+      Ipv4EmptyPart.INSTANCE,
+      Ipv4TooManyParts.INSTANCE,
+      Ipv4NonNumericPart.INSTANCE,
+      Ipv4NonDecimalPart.INSTANCE,
+      Ipv4OutOfRangePart.INSTANCE
+  );
+  /** The kind of an invalid URL unit, whose payload is the offending code point. */
+  private static final int INVALID_URL_UNIT_CODE_POINT = SINGLETONS.size();
+  /** The kind of any other error, whose payload is its index in {@link #others}. */
+  private static final int OTHER = INVALID_URL_UNIT_CODE_POINT + 1;
+
+  private static final int KIND_SHIFT = 24;
+  private static final int PAYLOAD_MASK = (1 << KIND_SHIFT) - 1;
+
+  private static final ClassValue<Integer> SINGLETON_KINDS = new ClassValue<>() {
+    @Override
+    protected Integer computeValue(Class<?> type) {
+      for (int kind = 0; kind < SINGLETONS.size(); kind++) {
+        if (SINGLETONS.get(kind).getClass() == type) {
+          return kind;
+        }
+      }
+      return OTHER;
+    }
+  };
+
+  /** The errors of a failure whose errors weren't recorded at all. */
+  static final List<ValidationError> NONE_RECORDED = noneRecorded();
+  /**
+   * Drops every error. It's shared by parses that never hand their errors out, and since it's
+   * truncated from the start, reporting to it never writes to it.
+   */
+  static final ValidationErrors DISCARDED = discarded();
+
+  private final Diagnostics diagnostics;
+  private int[] entries = null;
+  private int size = 0;
+  private long kinds = 0;
+  private List<ValidationError> others = null;
+  private boolean truncated = false;
+  private boolean frozen = false;
+
+  ValidationErrors(Diagnostics diagnostics) {
+    this.diagnostics = diagnostics;
+  }
+
+  /**
+   * @return whether reported errors are kept
+   */
+  boolean isRecording() {
+    return !frozen && (diagnostics == Diagnostics.COLLECT || (diagnostics == Diagnostics.FAIL_FAST && size == 0));
+  }
+
+  /**
+   * @return whether parsing should stop because of an error already reported
+   */
+  boolean shouldStop() {
+    return diagnostics == Diagnostics.FAIL_FAST && size > 0;
+  }
+
+  @Override
+  public boolean add(ValidationError error) {
+    if (frozen) {
+      throw new UnsupportedOperationException();
+    }
+    if (!isRecording()) {
+      markTruncated();
+      return false;
+    }
+
+    int kind = SINGLETON_KINDS.get(error.getClass());
+    if (kind != OTHER) {
+      append(kind, 0);
+      return true;
+    }
+
+    if (others == null) {
+      others = new ArrayList<>();
+    }
+    others.add(error);
+    append(OTHER, others.size() - 1);
+    return true;
+  }
+
+  /**
+   * Reports an {@link InvalidUrlUnit} for the code point, without building its message.
+   */
+  void addInvalidUrlUnit(int codePoint) {
+    if (isRecording()) {
+      append(INVALID_URL_UNIT_CODE_POINT, codePoint);
+    } else if (!frozen) {
+      markTruncated();
+    }
+  }
+
+  private void markTruncated() {
+    // only written once, so the shared discarding list is only ever read
+    if (!truncated) {
+      truncated = true;
+    }
+  }
+
+  private void append(int kind, int payload) {
+    if (entries == null) {
+      entries = new int[diagnostics == Diagnostics.FAIL_FAST ? 1 : 4];
+    } else if (size == entries.length) {
+      entries = Arrays.copyOf(entries, size * 2);
+    }
+
+    entries[size++] = (kind << KIND_SHIFT) | payload;
+    kinds |= 1L << kind;
+  }
+
+  @Override
+  public ValidationError get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    int entry = entries[index];
+    int kind = entry >>> KIND_SHIFT;
+    int payload = entry & PAYLOAD_MASK;
+
+    if (kind == INVALID_URL_UNIT_CODE_POINT) {
+      return new InvalidUrlUnit(Character.toString(payload));
+    }
+    if (kind == OTHER) {
+      return others.get(payload);
+    }
+    return SINGLETONS.get(kind);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if (!(o instanceof ValidationError error)) {
+      return false;
+    }
+
+    int kind = SINGLETON_KINDS.get(error.getClass());
+    if (kind != OTHER) {
+      return (kinds & (1L << kind)) != 0;
+    }
+    return super.contains(o);
+  }
+
+  /**
+   * @return whether any reported errors were dropped instead of kept
+   */
+  boolean isTruncated() {
+    return truncated;
+  }
+
+  /**
+   * @return whether the list is one of these and had errors dropped from it
+   */
+  static boolean isTruncated(List<ValidationError> errors) {
+    return errors instanceof ValidationErrors validationErrors && validationErrors.truncated;
+  }
+
+  /**
+   * @return whether this has been handed out by {@link #toList()}, and so can't be changed
+   */
+  boolean isFrozen() {
+    return frozen;
+  }
+
+  /**
+   * Removes every error, keeping the storage for reuse.
+   */
+  @Override
+  public void clear() {
+    if (frozen) {
+      throw new UnsupportedOperationException();
+    }
+    size = 0;
+    kinds = 0;
+    truncated = false;
+    if (others != null) {
+      others.clear();
+    }
+  }
+
+  /**
+   * Stops any further errors from being reported, so this can be handed out as an immutable list.
+   */
+  List<ValidationError> toList() {
+    frozen = true;
+    return size == 0 && !truncated ? List.of() : this;
+  }
+
+  private static ValidationErrors discarded() {
+    ValidationErrors errors = new ValidationErrors(Diagnostics.NONE);
+    errors.truncated = true;
+    return errors;
+  }
+
+  private static List<ValidationError> noneRecorded() {
+    ValidationErrors errors = new ValidationErrors(Diagnostics.NONE);
+    errors.truncated = true;
+    return errors.toList();
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.DynamicTest.dynamicTest;
+
+import com.tylerkindy.url.UrlParseResult.Failure;
+import com.tylerkindy.url.UrlParseResult.Success;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+/**
+ * Pathological inputs that would take quadratic time in a naive parser. Each is run at two sizes,
+ * checking the output every time, and the larger size has to take about as much longer as it is
+ * bigger: four times the input takes four times as long in linear time, but sixteen in quadratic.
+ */
+class AdversarialInputTest {
+  private static final int N = 50_000;
+  private static final int SCALE = 4;
+  private static final double MAX_TIME_RATIO = 10;
+  private static final int RUNS = 5;
+
+  @TestFactory
+  Stream<DynamicTest> itParsesPathologicalInputsInLinearTime() {
+    return Stream.of(
+        adversarial(
+            "at signs",
+            n -> "https://" + "@".repeat(n) + "example.com/",
+            n -> "https://" + "%40".repeat(n - 1) + "@example.com/"
+        ),
+        adversarial(
+            "credentials",
+            n -> "https://" + "a:b@".repeat(n) + "example.com/",
+            n -> "https://a:b" + "%40a%3Ab".repeat(n - 1) + "@example.com/"
+        ),
+        adversarial(
+            "dot-dot segments",
+            n -> "https://example.com/" + "../".repeat(n),
+            n -> "https://example.com/"
+        ),
+        adversarial(
+            "segments",
+            n -> "https://example.com/" + "a/".repeat(n),
+            n -> "https://example.com/" + "a/".repeat(n)
+        ),
+        adversarial(
+            "segments and dot-dots",
+            n -> "https://example.com/" + "a/b/../".repeat(n),
+            n -> "https://example.com/" + "a/".repeat(n)
+        ),
+        adversarial(
+            "relative segments",
+            n -> "a/".repeat(n) + "?q",
+            n -> "https://example.com/" + "base/".repeat(n) + "a/".repeat(n) + "?q"
+        ),
+        adversarial(
+            "relative dot-dots",
+            n -> "../".repeat(n) + "a",
+            n -> "https://example.com/a"
+        ),
+        adversarial(
+            "file segments",
+            n -> "file:///C:/" + "a/".repeat(n),
+            n -> "file:///C:/" + "a/".repeat(n)
+        ),
+        adversarial(
+            "opaque path",
+            n -> "data:text/plain;base64," + "QUJD".repeat(n),
+            n -> "data:text/plain;base64," + "QUJD".repeat(n)
+        ),
+        adversarial(
+            "query",
+            n -> "https://example.com/?" + "a=b&".repeat(n),
+            n -> "https://example.com/?" + "a=b&".repeat(n)
+        ),
+        adversarial(
+            "fragment",
+            n -> "https://example.com/#" + "a b".repeat(n),
+            n -> "https://example.com/#" + "a%20b".repeat(n)
+        ),
+        adversarial(
+            "long IDN label",
+            n -> "https://" + "ü".repeat(n) + ".example/",
+            n -> "https://xn--" + Punycode.encode("ü".repeat(n)) + ".example/"
+        ),
+        adversarial(
+            "long punycode label",
+            n -> "https://xn--" + Punycode.encode(distinctCodePoints(n)) + ".example/",
+            n -> "https://xn--" + Punycode.encode(distinctCodePoints(n)) + ".example/"
+        ),
+        adversarial(
+            "long label of distinct code points",
+            n -> "https://" + distinctCodePoints(n) + ".example/",
+            n -> "https://xn--" + Punycode.encode(distinctCodePoints(n)) + ".example/"
+        ),
+        adversarial(
+            "many labels",
+            n -> "https://" + "a.".repeat(n) + "example/",
+            n -> "https://" + "a.".repeat(n) + "example/"
+        ),
+        adversarial("IPv6 brackets", n -> "https://[" + ":".repeat(n) + "]/", n -> null)
+    );
+  }
+
+  @TestFactory
+  Stream<DynamicTest> itRoundTripsLongPunycodeLabelsInLinearTime() {
+    return Stream.of(
+        punycodeRoundTrip("repeated code point", n -> "ü".repeat(n)),
+        punycodeRoundTrip("distinct code points", AdversarialInputTest::distinctCodePoints)
+    );
+  }
+
+  /**
+   * @return a string of the given length made of distinct CJK ideographs, as far as they go
+   */
+  private static String distinctCodePoints(int length) {
+    StringBuilder output = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      output.appendCodePoint(0x4E00 + i % 0x5000);
+    }
+    return output.toString();
+  }
+
+  /**
+   * @param expectedHref the href the input of each size parses to, or null if it doesn't parse
+   */
+  private static DynamicTest adversarial(
+      String name,
+      IntFunction<String> input,
+      IntFunction<String> expectedHref
+  ) {
+    return dynamicTest(name, () -> assertLinear(name, n -> {
+      Url base = Url.parseOrThrow("https://example.com/" + "base/".repeat(n));
+      String url = input.apply(n);
+      String href = expectedHref.apply(n);
+
+      return fastestNanos(
+          () -> Url.parse(url, base),
+          result -> {
+            if (href == null) {
+              assertThat(result).as(name).isInstanceOf(Failure.class);
+            } else {
+              assertThat(result).as(name).isInstanceOf(Success.class);
+              assertThat(((Success) result).url().toString()).as(name).isEqualTo(href);
+            }
+          }
+      );
+    }));
+  }
+
+  private static DynamicTest punycodeRoundTrip(String name, IntFunction<String> label) {
+    return dynamicTest(name, () -> assertLinear(name, n -> {
+      String decoded = label.apply(n);
+
+      return fastestNanos(
+          () -> Punycode.decode(Punycode.encode(decoded)),
+          roundTripped -> assertThat(roundTripped).as(name).isEqualTo(decoded)
+      );
+    }));
+  }
+
+  /**
+   * Times {@code N} and then {@code SCALE * N} after a warm-up run, and fails if the time grew by
+   * more than {@code MAX_TIME_RATIO}.
+   *
+   * @param nanosAtSize the fastest time for the given size
+   */
+  private static void assertLinear(String name, IntToLongFunction nanosAtSize) {
+    nanosAtSize.applyAsLong(N);
+    long small = nanosAtSize.applyAsLong(N);
+    long large = nanosAtSize.applyAsLong(SCALE * N);
+
+    assertThat((double) large / small)
+        .as("%s took %dns at %d and %dns at %d", name, small, N, large, SCALE * N)
+        .isLessThan(MAX_TIME_RATIO);
+  }
+
+  /**
+   * Runs the function {@code RUNS} times, checking each output, and keeps the fastest time so that
+   * pauses for garbage collection or compilation don't count.
+   */
+  private static <T> long fastestNanos(Supplier<T> function, Consumer<T> check) {
+    long fastest = Long.MAX_VALUE;
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      T output = function.get();
+      fastest = Math.min(fastest, System.nanoTime() - start);
+
+      check.accept(output);
+    }
+    return fastest;
+  }
+}
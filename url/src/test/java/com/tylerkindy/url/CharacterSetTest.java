@@ -60,4 +60,63 @@ class CharacterSetTest {
     assertThat(set.contains('e')).isTrue();
     assertThat(set.contains('f')).isFalse();
   }
+
+  @Test
+  void itContainsCodePointsAboveLatin1() {
+    CharacterSet set =
+        CharacterSet.builder()
+            .addRange(Range.closed(0x00F0, 0x0110))
+            .addRange(Range.greaterThan(0x1F5FF))
+            .addCodePoint('\u20AC')
+            .build();
+
+    assertThat(set.contains(0x00EF)).isFalse();
+    assertThat(set.contains(0x00FF)).isTrue();
+    assertThat(set.contains(0x0110)).isTrue();
+    assertThat(set.contains(0x0111)).isFalse();
+    assertThat(set.contains(0x20AC)).isTrue();
+    assertThat(set.contains(0x20AD)).isFalse();
+    assertThat(set.contains(0x1F5FF)).isFalse();
+    assertThat(set.contains(0x1F600)).isTrue();
+    assertThat(set.contains(Character.MAX_CODE_POINT)).isTrue();
+    assertThat(set.contains(-1)).isFalse();
+  }
+
+  @Test
+  void itMergesOverlappingRanges() {
+    CharacterSet set =
+        CharacterSet.builder()
+            .addRange(0x300, 0x310)
+            .addRange(0x305, 0x320)
+            .addRange(0x321, 0x330)
+            .addRange(0x400, 0x400)
+            .build();
+
+    assertThat(set.contains(0x2FF)).isFalse();
+    assertThat(set.contains(0x300)).isTrue();
+    assertThat(set.contains(0x315)).isTrue();
+    assertThat(set.contains(0x330)).isTrue();
+    assertThat(set.contains(0x331)).isFalse();
+    assertThat(set.contains(0x400)).isTrue();
+  }
+
+  @Test
+  void itAddsAllOfAnotherSet() {
+    CharacterSet base =
+        CharacterSet.builder()
+            .addCodePoint('a')
+            .addRange(0x1000, 0x2000)
+            .build();
+    CharacterSet set = CharacterSet.builder().addAll(base).addCodePoint('b').build();
+
+    assertThat(set.contains('a')).isTrue();
+    assertThat(set.contains('b')).isTrue();
+    assertThat(set.contains(0x1800)).isTrue();
+    assertThat(base.contains('b')).isFalse();
+  }
+
+  @Test
+  void itIsAnIntPredicate() {
+    assertThat("a\tb c".chars().filter(PercentEncoder.FRAGMENT).count()).isEqualTo(2);
+  }
 }
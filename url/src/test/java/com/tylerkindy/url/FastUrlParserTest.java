@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.io.Resources;
+import com.tylerkindy.url.ParseOptions.Diagnostics;
+import com.tylerkindy.url.UrlParseResult.Success;
+import com.tylerkindy.url.testdata.TestCaseReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class FastUrlParserTest {
+  @Test
+  void itMatchesTheStateMachineOnTestData() {
+    AtomicInteger fastPathCount = new AtomicInteger();
+
+    TestCaseReader.testCasesWithParsedBase().forEach(testCase -> {
+      if (assertMatchesStateMachine(testCase.input(), testCase.base())) {
+        fastPathCount.incrementAndGet();
+      }
+    });
+
+    assertThat(fastPathCount).hasPositiveValue();
+  }
+
+  @Test
+  void itMatchesTheStateMachineOnTop100Urls() throws IOException {
+    long fastPathCount = Resources.readLines(Resources.getResource("top100.txt"), StandardCharsets.UTF_8)
+        .stream()
+        .filter(line -> assertMatchesStateMachine(line, Optional.empty()))
+        .count();
+
+    assertThat(fastPathCount).isPositive();
+  }
+
+  @Test
+  void itParsesCommonUrls() {
+    assertThat(FastUrlParser.tryParse("https://WWW.Example.com:8080/a/b?c=d&e#f", Optional.empty()))
+        .hasValueSatisfying(url -> assertThat(url.toString())
+            .isEqualTo("https://www.example.com:8080/a/b?c=d&e#f"));
+    assertThat(FastUrlParser.tryParse("http://example.com:80", Optional.empty()))
+        .hasValueSatisfying(url -> assertThat(url.toString()).isEqualTo("http://example.com/"));
+  }
+
+  @Test
+  void itBailsOutOnUnusualUrls() {
+    Stream.of(
+        "file:///etc/passwd",
+        "HTTP://example.com/",
+        "https://user@example.com/",
+        "https://example.com/a/../b",
+        "https://example.com/%2e/b",
+        "https://example.com\\a",
+        "https://127.0.0.1/",
+        "https://xn--bcher-kva.example/",
+        "https://bücher.example/",
+        "https://example.com/a b",
+        "https://example.com/?'",
+        "https://example.com:99999/",
+        "https:example.com"
+    ).forEach(input -> assertThat(FastUrlParser.tryParse(input, Optional.empty()))
+        .as(input)
+        .isEmpty());
+  }
+
+  /**
+   * @return whether the fast path handled the input
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  private static boolean assertMatchesStateMachine(String input, Optional<Url> base) {
+    Optional<Url> fast = FastUrlParser.tryParse(input, Optional.empty());
+    if (fast.isEmpty()) {
+      return false;
+    }
+
+    // the fast path only accepts inputs without validation errors
+    ParseOptions failFast = ParseOptions.builder().setDiagnostics(Diagnostics.FAIL_FAST).build();
+    UrlParseResult slow = UrlParser.INSTANCE.parseWithStateMachine(input, 0, input.length(), base, failFast);
+    assertThat(slow).as(input).isEqualTo(new Success(fast.get()));
+    return true;
+  }
+}
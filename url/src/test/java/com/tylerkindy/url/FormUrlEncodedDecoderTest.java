@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class FormUrlEncodedDecoderTest {
+  private static final String BODY = "a=1&&b=x+y%2B&c&=d&%=%4&%4g=%C3%A9%F0%9F%98%80&e=f=g&%zz%2";
+
+  @Test
+  void itDecodesPairs() throws IOException {
+    assertThat(decode(FormUrlEncodedDecoder.defaults(), BODY)).containsExactly(
+        Map.entry("a", "1"),
+        Map.entry("b", "x y+"),
+        Map.entry("c", ""),
+        Map.entry("", "d"),
+        Map.entry("%", "%4"),
+        Map.entry("%4g", "é😀"),
+        Map.entry("e", "f=g"),
+        Map.entry("%zz%2", "")
+    );
+  }
+
+  @Test
+  void itDecodesLikeSearchParams() throws IOException {
+    UrlSearchParams params = Url.parseOrThrow("https://example.com/?" + BODY).searchParams();
+    List<Map.Entry<String, String>> expected = IntStream.range(0, params.size())
+        .mapToObj(i -> Map.entry(params.name(i), params.value(i)))
+        .toList();
+
+    assertThat(decode(FormUrlEncodedDecoder.defaults(), BODY)).isEqualTo(expected);
+  }
+
+  @Test
+  void itDecodesAcrossChunkBoundaries() throws IOException {
+    List<Map.Entry<String, String>> expected = decode(FormUrlEncodedDecoder.defaults(), BODY);
+
+    for (int chunkSize = 1; chunkSize < 8; chunkSize++) {
+      FormUrlEncodedDecoder decoder = FormUrlEncodedDecoder.builder().setChunkSize(chunkSize).build();
+      byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+      List<Map.Entry<String, String>> pairs = new ArrayList<>();
+      decoder.decode(new ByteArrayInputStream(bytes), (name, value) -> pairs.add(Map.entry(name, value)));
+
+      assertThat(decode(decoder, BODY)).as("chunk size %d", chunkSize).isEqualTo(expected);
+      assertThat(pairs).as("chunk size %d", chunkSize).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void itDecodesUnescapedUtf8SplitAcrossChunks() throws IOException {
+    FormUrlEncodedDecoder decoder = FormUrlEncodedDecoder.builder().setChunkSize(1).build();
+
+    assertThat(decode(decoder, "é=😀")).containsExactly(Map.entry("é", "😀"));
+  }
+
+  @Test
+  void itRejectsPairsOverTheMaximumSize() throws IOException {
+    FormUrlEncodedDecoder decoder = FormUrlEncodedDecoder.builder()
+        .setChunkSize(4)
+        .setMaximumPairSize(8)
+        .build();
+
+    assertThat(decode(decoder, "a=1234567&b=%41%42%43%44%45%46")).containsExactly(
+        Map.entry("a", "1234567"),
+        Map.entry("b", "ABCDEF")
+    );
+    assertThatThrownBy(() -> decode(decoder, "a=12345678")).isInstanceOf(IOException.class);
+  }
+
+  private static List<Map.Entry<String, String>> decode(FormUrlEncodedDecoder decoder, String body) throws IOException {
+    List<Map.Entry<String, String>> pairs = new ArrayList<>();
+    decoder.decode(
+        Channels.newChannel(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))),
+        (name, value) -> pairs.add(Map.entry(name, value))
+    );
+    return pairs;
+  }
+}
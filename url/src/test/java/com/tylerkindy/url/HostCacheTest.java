@@ -0,0 +1,101 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tylerkindy.url.UrlParseResult.Failure;
+import com.tylerkindy.url.testdata.TestCaseReader;
+import org.junit.jupiter.api.Test;
+
+class HostCacheTest {
+  @Test
+  void itCountsHitsAndMisses() {
+    HostCache cache = HostCache.builder().build();
+
+    Url first = Url.parseOrThrow("https://example.com/a", cache);
+    Url second = Url.parseOrThrow("https://example.com/b", cache);
+
+    assertThat(second.host()).isEqualTo(first.host());
+    assertThat(cache.stats())
+        .isEqualTo(new HostCache.Stats(1, 1, 0));
+  }
+
+  @Test
+  void itSharesEntriesBetweenTheFastPathAndTheStateMachine() {
+    HostCache cache = HostCache.builder().build();
+
+    // the first URL takes the fast path, and the second needs the state machine for its credentials
+    Url.parseOrThrow("https://Example.COM/", cache);
+    Url.parseOrThrow("https://user@Example.COM/", cache);
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.stats()).isEqualTo(new HostCache.Stats(1, 1, 0));
+  }
+
+  @Test
+  void itKeysOnWhetherTheHostIsOpaque() {
+    HostCache cache = HostCache.builder().build();
+
+    assertThat(Url.parseOrThrow("https://EXAMPLE.com", cache).host().orElseThrow().toString())
+        .isEqualTo("example.com");
+    assertThat(Url.parseOrThrow("foo://EXAMPLE.com", cache).host().orElseThrow().toString())
+        .isEqualTo("EXAMPLE.com");
+    assertThat(cache.stats().missCount()).isEqualTo(2);
+  }
+
+  @Test
+  void itReplaysValidationErrors() {
+    HostCache cache = HostCache.builder().build();
+
+    UrlParseResult first = Url.parse("https://1.2.3.4.5/", cache);
+    UrlParseResult second = Url.parse("https://1.2.3.4.5/", cache);
+
+    assertThat(first).isInstanceOf(Failure.class);
+    assertThat(second).isEqualTo(first);
+    assertThat(cache.stats().hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void itEvictsBeyondMaximumSize() {
+    HostCache cache = HostCache.builder().setMaximumSize(1).setConcurrencyLevel(1).build();
+
+    Url.parseOrThrow("https://a.example", cache);
+    Url.parseOrThrow("https://b.example", cache);
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.stats().evictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  void itParsesTheSameAsWithoutACache() {
+    HostCache cache = HostCache.builder().build();
+
+    for (int i = 0; i < 2; i++) {
+      TestCaseReader.testCasesWithParsedBase().forEach(testCase -> {
+        UrlParseResult actual = testCase.parse(
+            input -> Url.parse(input, cache),
+            (input, base) -> Url.parse(input, base, cache)
+        );
+
+        assertThat(actual).as(testCase.name()).isEqualTo(testCase.parse());
+      });
+    }
+
+    assertThat(cache.stats().hitCount()).isPositive();
+  }
+}
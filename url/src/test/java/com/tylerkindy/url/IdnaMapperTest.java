@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.google.common.io.Resources;
+import com.tylerkindy.url.common.CodePoints;
+import com.tylerkindy.url.common.CodePoints.Range;
+import com.tylerkindy.url.common.CodePoints.Single;
+import com.tylerkindy.url.common.IdnaMappingTable;
+import com.tylerkindy.url.common.MappingRow;
+import com.tylerkindy.url.common.MappingRow.WithMapping;
+import com.tylerkindy.url.common.Status;
+import com.tylerkindy.url.common.UnicodeVersions;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class IdnaMapperTest {
+  @Test
+  void itMatchesEveryRowOfTheMappingTable() throws IOException {
+    IdnaMapper mapper = IdnaMapper.current();
+
+    for (MappingRow row : readRows()) {
+      CodePoints codePoints = row.codePoints();
+      int low = codePoints instanceof Single s ? s.codePoint() : ((Range) codePoints).lowCodePoint();
+      int high = codePoints instanceof Single s ? s.codePoint() : ((Range) codePoints).highCodePoint();
+
+      String expectedMapping = "";
+      if (row instanceof WithMapping mapped) {
+        StringBuilder sb = new StringBuilder();
+        mapped.mapping().forEach(sb::appendCodePoint);
+        expectedMapping = sb.toString();
+      }
+
+      for (int codePoint = low; codePoint <= high; codePoint++) {
+        int entry = mapper.lookup(codePoint);
+        StringBuilder mapping = new StringBuilder();
+        mapper.appendMapping(entry, mapping);
+
+        assertThat(IdnaMappingTable.status(entry)).isEqualTo(row.status());
+        assertThat(mapping.toString()).isEqualTo(expectedMapping);
+      }
+    }
+  }
+
+  @Test
+  void itLooksUpLatin1AndSupplementaryCodePoints() {
+    IdnaMapper mapper = IdnaMapper.current();
+
+    assertThat(mapper.getStatus('a')).isEqualTo(Status.VALID);
+    assertThat(mapper.getStatus('A')).isEqualTo(Status.MAPPED);
+    assertThat(mapper.getStatus(0xAD)).isEqualTo(Status.IGNORED);
+    assertThat(mapper.getStatus(0x1D400)).isEqualTo(Status.MAPPED);
+
+    StringBuilder mapping = new StringBuilder();
+    mapper.appendMapping(mapper.lookup(0x1D400), mapping);
+    assertThat(mapping.toString()).isEqualTo("a");
+  }
+
+  private static List<MappingRow> readRows() throws IOException {
+    CsvMapper csvMapper = new CsvMapper();
+    CsvSchema schema = csvMapper.schemaFor(MappingRow.class).withHeader();
+
+    try (
+        var mapStream = Resources.getResource(
+                "com/tylerkindy/url/idnamap/" + UnicodeVersions.getCurrentUnicodeVersion() + ".csv"
+            )
+            .openStream()
+    ) {
+      return csvMapper.readerFor(MappingRow.class).with(schema).<MappingRow>readValues(mapStream)
+          .readAll();
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tylerkindy.url.Idna.ToAsciiParams;
+import org.junit.jupiter.api.Test;
+
+class IdnaTest {
+  private static final ToAsciiParams PARAMS = ToAsciiParams.builder()
+      .setCheckBidi(true)
+      .setCheckJoiners(true)
+      .build();
+
+  @Test
+  void itReturnsLowercaseAsciiDomainsAsIs() {
+    String domain = "www.example.com";
+    assertThat(Idna.toAscii(domain, PARAMS)).containsSame(domain);
+  }
+
+  @Test
+  void itLowercasesAsciiDomains() {
+    assertThat(Idna.toAscii("WWW.Example.COM", PARAMS)).contains("www.example.com");
+  }
+
+  @Test
+  void itKeepsNonLdhAsciiWithoutStd3Rules() {
+    assertThat(Idna.toAscii("a_b.Example", PARAMS)).contains("a_b.example");
+  }
+
+  @Test
+  void itRejectsNonLdhAsciiWithStd3Rules() {
+    ToAsciiParams std3Params = ToAsciiParams.builder().setUseStd3AsciiRules(true).build();
+    assertThat(Idna.toAscii("a_b.example", std3Params)).isEmpty();
+  }
+
+  @Test
+  void itStillValidatesPunycodeLabels() {
+    assertThat(Idna.toAscii("XN--bcher-kva.example", PARAMS)).contains("xn--bcher-kva.example");
+    assertThat(Idna.toAscii("xn--a.example", PARAMS)).isEmpty();
+  }
+
+  @Test
+  void itEncodesNonAsciiDomains() {
+    assertThat(Idna.toAscii("Bücher.example", PARAMS)).contains("xn--bcher-kva.example");
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tylerkindy.url.ParseOptions.Diagnostics;
+import com.tylerkindy.url.UrlParseResult.Failure;
+import com.tylerkindy.url.UrlParseResult.Success;
+import com.tylerkindy.url.ValidationError.HostMissing;
+import com.tylerkindy.url.ValidationError.InvalidUrlUnit;
+import com.tylerkindy.url.testdata.TestCaseReader;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ParseOptionsTest {
+  private static final ParseOptions NO_DIAGNOSTICS = ParseOptions.builder()
+      .setDiagnostics(Diagnostics.NONE)
+      .build();
+  private static final ParseOptions FAIL_FAST = ParseOptions.builder()
+      .setDiagnostics(Diagnostics.FAIL_FAST)
+      .build();
+
+  @Test
+  void itCollectsErrorsByDefault() {
+    assertThat(Url.parse("https://a b/"))
+        .isInstanceOfSatisfying(Failure.class, failure -> {
+          assertThat(failure.errors()).isNotEmpty();
+          assertThat(failure.isTruncated()).isFalse();
+        });
+  }
+
+  @Test
+  void itRecordsNothingWithoutDiagnostics() {
+    UrlParseResult first = Url.parse("https://a b/", NO_DIAGNOSTICS);
+    UrlParseResult second = Url.parse("http://", NO_DIAGNOSTICS);
+
+    assertThat(first).isEqualTo(new Failure(List.of()));
+    assertThat(second).isSameAs(first);
+    assertThat(((Failure) first).isTruncated()).isTrue();
+  }
+
+  @Test
+  void itParsesTheSameWithoutDiagnostics() {
+    TestCaseReader.testCases()
+        .filter(testCase -> testCase.base().isEmpty())
+        .forEach(testCase -> {
+          UrlParseResult expected = Url.parse(testCase.input());
+          UrlParseResult actual = Url.parse(testCase.input(), NO_DIAGNOSTICS);
+
+          if (expected instanceof Success) {
+            assertThat(actual).as(testCase.name()).isEqualTo(expected);
+          } else {
+            assertThat(actual).as(testCase.name()).isEqualTo(new Failure(List.of()));
+          }
+        });
+  }
+
+  @Test
+  void itFailsOnTheFirstRecoverableError() {
+    assertThat(Url.parse("https://example.com/a b")).isInstanceOf(Success.class);
+    assertThat(Url.parse("https://example.com/a b", FAIL_FAST))
+        .isEqualTo(new Failure(List.of(new InvalidUrlUnit(" "))));
+  }
+
+  @Test
+  void itOnlyReportsTheFirstError() {
+    assertThat(Url.parse("https://user@/", FAIL_FAST))
+        .isInstanceOfSatisfying(Failure.class, failure -> assertThat(failure.errors()).hasSize(1));
+    assertThat(Url.parse("http://", FAIL_FAST))
+        .isEqualTo(new Failure(List.of(new HostMissing())));
+  }
+}
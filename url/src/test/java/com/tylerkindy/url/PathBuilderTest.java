@@ -0,0 +1,70 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tylerkindy.url.UrlPath.NonOpaque;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PathBuilderTest {
+  @Test
+  void itSharesAPrefixAndShortensIntoIt() {
+    String href = "https://example.com/a/b/c?q";
+    PathBuilder path = new PathBuilder();
+    path.share(href, href.indexOf("/a"), href.indexOf('?'));
+
+    path.removeLast();
+    path.add("d");
+    assertThat(segments(path)).containsExactly("a", "b", "d");
+
+    path.removeLast();
+    path.removeLast();
+    assertThat(path.hasSingleSegment()).isTrue();
+    assertThat(path.first()).isEqualTo("a");
+
+    path.removeLast();
+    path.removeLast();
+    assertThat(path.isEmpty()).isTrue();
+  }
+
+  @Test
+  void itResolvesAgainstASharedBasePath() {
+    Url base = Url.parseOrThrow("https://example.com/a/b/c");
+
+    assertThat(Url.parseOrThrow("d", base).toString()).isEqualTo("https://example.com/a/b/d");
+    assertThat(Url.parseOrThrow("../../d", base).toString()).isEqualTo("https://example.com/d");
+    assertThat(Url.parseOrThrow("?q", base).path()).isEqualTo(new NonOpaque(List.of("a", "b", "c")));
+    assertThat(Url.parseOrThrow("web+demo:/.//not-a-host/a").path())
+        .isEqualTo(new NonOpaque(List.of("", "not-a-host", "a")));
+    assertThat(Url.parseOrThrow("?q", Url.parseOrThrow("web+demo:/.//not-a-host/")).toString())
+        .isEqualTo("web+demo:/.//not-a-host/?q");
+  }
+
+  private static List<String> segments(PathBuilder path) {
+    List<String> segments = new ArrayList<>();
+    path.visit(new UrlVisitor() {
+      @Override
+      public void visitPathSegment(CharSequence segment) {
+        segments.add(segment.toString());
+      }
+    });
+    return segments;
+  }
+}
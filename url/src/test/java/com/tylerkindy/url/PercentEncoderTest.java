@@ -18,6 +18,10 @@ package com.tylerkindy.url;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.Test;
 
@@ -30,8 +34,89 @@ class PercentEncoderTest {
         .isEqualTo("ab%23cd");
   }
 
+  @Test
+  void itEncodesIntoAnAppendable() throws IOException {
+    StringWriter output = new StringWriter();
+    PercentEncoder.appendUtf8PercentEncoded(output, "[a b/é😀]", 1, 8, PercentEncoder.PATH, false);
+
+    assertThat(output.toString()).isEqualTo("a%20b/%C3%A9%F0%9F%98%80");
+  }
+
+  @Test
+  void itEncodesSpacesAsPlus() {
+    StringBuilder output = new StringBuilder();
+    PercentEncoder.appendUtf8PercentEncoded(output, "a b+c", 0, 5, PercentEncoder.USERINFO, true);
+
+    assertThat(output.toString()).isEqualTo("a+b+c");
+  }
+
+  @Test
+  void itEncodesLikeTheCharsetEncoder() {
+    String input = "abc /?#[]{}`'\"<>|^%\u0000\u007F\u0080é€😀\uD800x";
+    Charset windows1252 = Charset.forName("windows-1252");
+    for (CharacterSet set : new CharacterSet[] {
+        PercentEncoder.C0_CONTROL,
+        PercentEncoder.QUERY,
+        PercentEncoder.SPECIAL_QUERY,
+        PercentEncoder.PATH,
+        PercentEncoder.USERINFO,
+        PercentEncoder.FRAGMENT
+    }) {
+      String ascii = input.substring(0, 18);
+      assertThat(PercentEncoder.utf8PercentEncode(ascii, set))
+          .isEqualTo(PercentEncoder.percentEncodeAfterEncoding(windows1252, ascii, set));
+      assertThat(PercentEncoder.utf8PercentEncode(input, set))
+          .isEqualTo(utf8PercentEncodeViaCharset(input, set));
+    }
+  }
+
+  private static String utf8PercentEncodeViaCharset(String input, CharacterSet set) {
+    StringBuilder output = new StringBuilder();
+    for (byte b : input.getBytes(StandardCharsets.UTF_8)) {
+      PercentEncoder.appendPercentEncodedByte(output, Byte.toUnsignedInt(b), set);
+    }
+    return output.toString();
+  }
+
   @Test
   void itDecodes() {
     assertThat(PercentEncoder.percentDecode("ab%20cd")).isEqualTo("ab cd");
   }
+
+  @Test
+  void itReturnsInputWithoutPercentSignsAsIs() {
+    String input = "example.com";
+    assertThat(PercentEncoder.percentDecode(input)).isSameAs(input);
+  }
+
+  @Test
+  void itLeavesInvalidPercentSequencesAlone() {
+    assertThat(PercentEncoder.percentDecode("%%41%4g%C3%A9%e2%82%AC%")).isEqualTo("%A%4gé€%");
+    assertThat(PercentEncoder.percentDecode("%F0%9F%98%80%FF")).isEqualTo("😀\uFFFD");
+  }
+
+  @Test
+  void itDecodesIntoAByteArray() {
+    byte[] input = "xa%2Fb%zz%2".getBytes(StandardCharsets.US_ASCII);
+    byte[] output = new byte[16];
+
+    int length = PercentEncoder.percentDecode(input, 1, input.length, output, 2);
+
+    assertThat(new String(output, 2, length, StandardCharsets.US_ASCII)).isEqualTo("a/b%zz%2");
+  }
+
+  @Test
+  void itDecodesBetweenByteBuffers() {
+    ByteBuffer output = ByteBuffer.allocate(16);
+    ByteBuffer heap = ByteBuffer.wrap("a%20b%2".getBytes(StandardCharsets.US_ASCII));
+    ByteBuffer direct = ByteBuffer.allocateDirect(4).put("%41c".getBytes(StandardCharsets.US_ASCII)).flip();
+
+    PercentEncoder.percentDecode(heap, output);
+    PercentEncoder.percentDecode(direct, output);
+
+    assertThat(heap.hasRemaining()).isFalse();
+    assertThat(direct.hasRemaining()).isFalse();
+    assertThat(new String(output.array(), 0, output.position(), StandardCharsets.US_ASCII))
+        .isEqualTo("a b%2Ac");
+  }
 }
@@ -26,7 +26,7 @@ class PointerTest {
     Pointer p = new Pointer("abcdef");
 
     p.increase();
-    assertThat(p.getCurrentCodePoint()).isEqualTo('b');
+    assertThat(p.codePoint()).isEqualTo('b');
   }
 
   @Test
@@ -34,27 +34,27 @@ class PointerTest {
     Pointer p = new Pointer("\uD800\uDC02\uD800\uDC14");
 
     p.increase();
-    assertThat(p.getCurrentCodePoint())
+    assertThat(p.codePoint())
         .isEqualTo(Character.toCodePoint('\uD800', '\uDC14'));
   }
 
   @Test
   void itIsEofFromStartOnEmptyString() {
     Pointer p = new Pointer("");
-    assertThat(p.isEof()).isTrue();
+    assertThat(p.codePoint()).isEqualTo(Pointer.EOF);
   }
 
   @Test
   void itIsEofAfterAdvancingPastEndOfString() {
     Pointer p = new Pointer("ab");
 
-    assertThat(p.isEof()).isFalse();
+    assertThat(p.codePoint()).isNotEqualTo(Pointer.EOF);
 
     p.increase();
-    assertThat(p.isEof()).isFalse();
+    assertThat(p.codePoint()).isNotEqualTo(Pointer.EOF);
 
     p.increase();
-    assertThat(p.isEof()).isTrue();
+    assertThat(p.codePoint()).isEqualTo(Pointer.EOF);
   }
 
   @Test
@@ -93,7 +93,7 @@ class PointerTest {
     p.increase();
     p.reset();
 
-    assertThat(p.getCurrentCodePoint()).isEqualTo('a');
+    assertThat(p.codePoint()).isEqualTo('a');
   }
 
   @Test
@@ -102,6 +102,58 @@ class PointerTest {
     p.increase();
     p.decrease();
 
-    assertThat(p.getCurrentCodePoint()).isEqualTo('a');
+    assertThat(p.codePoint()).isEqualTo('a');
+  }
+
+  @Test
+  void itPointsNowhereBeforeTheStart() {
+    Pointer p = new Pointer("abc");
+    p.decrease();
+
+    assertThat(p.codePoint()).isEqualTo(Pointer.NOWHERE);
+
+    p.increase();
+    assertThat(p.codePoint()).isEqualTo('a');
+  }
+
+  @Test
+  void itMatchesCompiledPrefixes() {
+    assertThat(new Pointer("%2F").doesRemainingStartWith(Pointer.TWO_ASCII_HEX_DIGITS))
+        .isTrue();
+    assertThat(new Pointer("%2G").doesRemainingStartWith(Pointer.TWO_ASCII_HEX_DIGITS))
+        .isFalse();
+    assertThat(new Pointer("%2").doesRemainingStartWith(Pointer.TWO_ASCII_HEX_DIGITS))
+        .isFalse();
+  }
+
+  @Test
+  void itStaysWithinItsSlice() {
+    Pointer p = new Pointer("xx/ab/yy", 2, 5);
+
+    assertThat(p.codePoint()).isEqualTo('/');
+    assertThat(p.doesRemainingStartWith("ab")).isTrue();
+    assertThat(p.doesRemainingStartWith("ab/")).isFalse();
+
+    p.increase(3);
+    assertThat(p.codePoint()).isEqualTo(Pointer.EOF);
+
+    p.decrease(4);
+    assertThat(p.codePoint()).isEqualTo(Pointer.NOWHERE);
+  }
+
+  @Test
+  void itAppendsRunsOfCopyableCodePoints() {
+    boolean[] copyTable = CharacterUtils.asciiCopyTable(PercentEncoder.PATH, "/");
+    Pointer p = new Pointer("xxab c/d", 2, 8);
+    StringBuilder output = new StringBuilder();
+
+    assertThat(p.appendRun(output, copyTable)).isTrue();
+    assertThat(output.toString()).isEqualTo("ab");
+    assertThat(p.codePoint()).isEqualTo('b');
+
+    p.increase();
+    assertThat(p.appendRun(output, copyTable)).isFalse();
+    assertThat(output.toString()).isEqualTo("ab");
+    assertThat(p.codePoint()).isEqualTo(' ');
   }
 }
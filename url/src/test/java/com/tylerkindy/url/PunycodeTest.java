@@ -45,4 +45,20 @@ class PunycodeTest {
     assertThat(Punycode.decode("PorqunopuedensimplementehablarenEspaol-fmd56a"))
         .isEqualTo("PorquénopuedensimplementehablarenEspañol");
   }
+
+  @Test
+  void itEncodesSupplementaryCodePoints() {
+    assertThat(Punycode.encode("\uD83D\uDCA9")).isEqualTo("ls8h");
+    assertThat(Punycode.decode("ls8h")).isEqualTo("\uD83D\uDCA9");
+  }
+
+  @Test
+  void itRoundTripsLongLabels() {
+    StringBuilder label = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      label.appendCodePoint(i % 3 == 0 ? 'a' + i % 26 : 0x4E00 + (i * 7919) % 0x5000);
+    }
+
+    assertThat(Punycode.decode(Punycode.encode(label.toString()))).isEqualTo(label.toString());
+  }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.spi.ToolProvider;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Guards the parser's methods against growing past the sizes HotSpot is willing to compile and
+ * inline.
+ */
+class UrlParserBytecodeTest {
+  /** HotSpot's {@code HugeMethodLimit}; larger methods are never JIT-compiled. */
+  private static final int HUGE_METHOD_LIMIT = 8000;
+  /** HotSpot's default {@code FreqInlineSize}; larger hot methods are never inlined. */
+  private static final int FREQ_INLINE_SIZE = 325;
+
+  /**
+   * A member declaration in {@code javap}'s output. For a method, the name is the word before the
+   * parameters; the static initializer has none.
+   */
+  private static final Pattern DECLARATION = Pattern.compile("^  \\S(?:.*?(\\w+)\\(.*\\)|.*);$");
+  /** An instruction in {@code javap -c}'s output, with its offset and opcode. */
+  private static final Pattern INSTRUCTION = Pattern.compile("^\\s+(\\d+): (\\w+).*$");
+
+  @Test
+  void noMethodIsTooHugeToCompile() {
+    assertThat(codeSizes(UrlParser.class))
+        .allSatisfy((name, size) -> assertThat(size).as(name).isLessThan(HUGE_METHOD_LIMIT));
+  }
+
+  @Test
+  void stateHandlersAreSmallEnoughToInline() {
+    Map<String, Integer> codeSizes = codeSizes(UrlParser.class);
+
+    assertThat(codeSizes).containsKey("runStateMachine");
+    assertThat(codeSizes.keySet()).anyMatch(name -> name.endsWith("State"));
+
+    codeSizes.forEach((name, size) -> {
+      if (name.equals("runStateMachine") || name.endsWith("State")) {
+        assertThat(size).as(name).isLessThan(FREQ_INLINE_SIZE);
+      }
+    });
+  }
+
+  /**
+   * Disassembles the class with {@code javap} and measures each method's bytecode up to the end of
+   * its last instruction, which javac always makes a one-byte return or throw, or a three-byte
+   * {@code goto}. Overloads are collapsed to their largest body.
+   */
+  private static Map<String, Integer> codeSizes(Class<?> clazz) {
+    ToolProvider javap = ToolProvider.findFirst("javap").orElseThrow();
+    StringWriter out = new StringWriter();
+    int exitCode = javap.run(
+        new PrintWriter(out),
+        new PrintWriter(System.err),
+        "-c", "-p", clazz.getResource(clazz.getSimpleName() + ".class").toString()
+    );
+    assertThat(exitCode).as("javap exit code").isZero();
+
+    Map<String, Integer> codeSizes = new LinkedHashMap<>();
+    String method = null;
+    String lastInstruction = null;
+    for (String line : out.toString().split("\n")) {
+      Matcher declaration = DECLARATION.matcher(line);
+      if (declaration.matches()) {
+        method = declaration.group(1) == null ? "<clinit>" : declaration.group(1);
+      } else if (INSTRUCTION.matcher(line).matches()) {
+        lastInstruction = line;
+      } else if (line.isBlank() && lastInstruction != null) {
+        codeSizes.merge(method, sizeThrough(lastInstruction), Math::max);
+        lastInstruction = null;
+      }
+    }
+    if (lastInstruction != null) {
+      codeSizes.merge(method, sizeThrough(lastInstruction), Math::max);
+    }
+    return codeSizes;
+  }
+
+  private static int sizeThrough(String lastInstruction) {
+    Matcher instruction = INSTRUCTION.matcher(lastInstruction);
+    assertThat(instruction.matches()).isTrue();
+    int offset = Integer.parseInt(instruction.group(1));
+    return switch (instruction.group(2)) {
+      case "goto" -> offset + 3;
+      case "goto_w" -> offset + 5;
+      default -> offset + 1;
+    };
+  }
+}
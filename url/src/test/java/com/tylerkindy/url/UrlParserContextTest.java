@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.tylerkindy.url.ParseOptions.Diagnostics;
+import com.tylerkindy.url.UrlParseResult.Failure;
+import com.tylerkindy.url.UrlParseResult.Success;
+import com.tylerkindy.url.ValidationError.HostMissing;
+import com.tylerkindy.url.ValidationError.InvalidUrlUnit;
+import com.tylerkindy.url.testdata.TestCaseReader;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class UrlParserContextTest {
+  @Test
+  void itParsesTestDataLikeUrl() {
+    UrlParserContext context = UrlParserContext.create();
+
+    TestCaseReader.testCasesWithParsedBase().forEach(testCase -> {
+      UrlParseResult actual = testCase.parse(context::parse, context::parse);
+
+      assertThat(actual).as(testCase.name()).isEqualTo(testCase.parse());
+    });
+  }
+
+  @Test
+  void itKeepsEarlierFailuresIntact() {
+    UrlParserContext context = UrlParserContext.create();
+
+    UrlParseResult failure = context.parse("http://");
+    context.parse("https://example.com/a b");
+    context.parse("https://a b/");
+
+    assertThat(failure).isEqualTo(new Failure(List.of(new HostMissing())));
+  }
+
+  @Test
+  void itReusesStateAcrossFailFastParses() {
+    UrlParserContext context = UrlParserContext.create(
+        ParseOptions.builder().setDiagnostics(Diagnostics.FAIL_FAST).build()
+    );
+
+    assertThat(context.parse("https://example.com/a b"))
+        .isEqualTo(new Failure(List.of(new InvalidUrlUnit(" "))));
+    assertThat(context.parse("non-special://example.com/a"))
+        .isEqualTo(new Success(Url.parseOrThrow("non-special://example.com/a")));
+    assertThat(context.parse("http://"))
+        .isEqualTo(new Failure(List.of(new HostMissing())));
+  }
+
+  @Test
+  void itParsesAfterAnUnusuallyLongUrl() {
+    UrlParserContext context = UrlParserContext.create();
+    String longUrl = "non-special://example.com/?" + "q".repeat(100_000);
+
+    assertThat(context.parse(longUrl)).isEqualTo(Url.parse(longUrl));
+    for (int i = 0; i < 100; i++) {
+      assertThat(context.parse("non-special://example.com/?" + i))
+          .isEqualTo(Url.parse("non-special://example.com/?" + i));
+    }
+  }
+
+  @Test
+  void itOnlyAllocatesTheResultOnceWarmedUp() {
+    assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+    String longUrl = "https://example.com/" + "a/".repeat(500) + "?" + "q".repeat(1_000) + "#f";
+    for (String input : List.of("https://www.example.com/a/b/c?d=e&f#g", longUrl)) {
+      UrlParserContext context = UrlParserContext.create();
+      for (int i = 0; i < 10_000; i++) {
+        context.parse(input);
+      }
+
+      int parses = 500;
+      long before = threads.getCurrentThreadAllocatedBytes();
+      for (int i = 0; i < parses; i++) {
+        context.parse(input);
+      }
+      long perParse = (threads.getCurrentThreadAllocatedBytes() - before) / parses;
+
+      // the href is the bulk of the result; anything well past it means scratch space was allocated
+      assertThat(perParse).as(input).isLessThan(2L * input.length() + 768);
+    }
+  }
+}
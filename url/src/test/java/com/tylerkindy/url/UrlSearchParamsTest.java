@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class UrlSearchParamsTest {
+  @Test
+  void itParsesPairs() {
+    UrlSearchParams params = Url.parseOrThrow("https://example.com/?a=1&&b=x+y%2B&c&=d&a=%C3%A9#f")
+        .searchParams();
+
+    assertThat(params.size()).isEqualTo(5);
+    assertThat(params.name(1)).isEqualTo("b");
+    assertThat(params.value(1)).isEqualTo("x y+");
+    assertThat(params.get("a")).hasValue("1");
+    assertThat(params.getAll("a")).containsExactly("1", "é");
+    assertThat(params.get("c")).hasValue("");
+    assertThat(params.get("")).hasValue("d");
+    assertThat(params.has("d")).isFalse();
+    assertThat(params.getAll("d")).isEmpty();
+  }
+
+  @Test
+  void itHasNoPairsWithoutAQuery() {
+    assertThat(Url.parseOrThrow("https://example.com/").searchParams().size()).isZero();
+    assertThat(Url.parseOrThrow("https://example.com/?").searchParams().size()).isZero();
+  }
+
+  @Test
+  void itLooksUpManyPairsThroughAnIndex() {
+    String query = IntStream.range(0, 100)
+        .mapToObj(i -> "k" + (i % 10) + "=" + i)
+        .collect(Collectors.joining("&"));
+    UrlSearchParams params = Url.parseOrThrow("https://example.com/?" + query).searchParams();
+
+    assertThat(params.get("k3")).hasValue("3");
+    assertThat(params.getAll("k3")).hasSize(10).startsWith("3", "13").endsWith("93");
+    assertThat(params.has("k10")).isFalse();
+  }
+
+  @Test
+  void itSetsPairs() {
+    Url url = Url.parseOrThrow("https://example.com/?a=1&b=%41&a=2#f");
+
+    assertThat(url.searchParams().set("a", "x y&").toString())
+        .isEqualTo("https://example.com/?a=x+y%26&b=A#f");
+    assertThat(url.searchParams().set("c", "~").toString())
+        .isEqualTo("https://example.com/?a=1&b=A&a=2&c=%7E#f");
+    assertThat(Url.parseOrThrow("https://example.com/").searchParams().set("a", "b").toString())
+        .isEqualTo("https://example.com/?a=b");
+  }
+
+  @Test
+  void itReSerializesEveryPairOnUpdate() {
+    Url url = Url.parseOrThrow("https://example.com/?a+b=%7e&c&d=e=f&g=%2B&h=i");
+
+    assertThat(url.searchParams().delete("x").query()).hasValue("a+b=%7E&c=&d=e%3Df&g=%2B&h=i");
+    assertThat(url.searchParams().toString()).isEqualTo("a+b=%7E&c=&d=e%3Df&g=%2B&h=i");
+  }
+
+  @Test
+  void itAppendsPairs() {
+    Url url = Url.parseOrThrow("https://example.com/?a=1#f");
+
+    assertThat(url.searchParams().append("a", "é").toString())
+        .isEqualTo("https://example.com/?a=1&a=%C3%A9#f");
+  }
+
+  @Test
+  void itDeletesPairs() {
+    Url url = Url.parseOrThrow("https://example.com/?a=1&b=2&a=3#f");
+
+    Url deleted = url.searchParams().delete("a");
+    assertThat(deleted.toString()).isEqualTo("https://example.com/?b=2#f");
+    assertThat(deleted.query()).hasValue("b=2");
+    assertThat(deleted.fragment()).hasValue("f");
+
+    Url empty = deleted.searchParams().delete("b");
+    assertThat(empty.toString()).isEqualTo("https://example.com/#f");
+    assertThat(empty.query()).isEmpty();
+    assertThat(empty.path().toString()).isEqualTo("/");
+  }
+
+  @Test
+  void itStripsTrailingSpacesFromOpaquePathsWhenTheQueryGoes() {
+    Url url = Url.parseOrThrow("data:space ?a=1");
+
+    assertThat(url.searchParams().delete("a").toString()).isEqualTo("data:space");
+  }
+
+  @Test
+  void itSortsPairsStably() {
+    Url url = Url.parseOrThrow("https://example.com/?z=1&a=2&%F0%9F%98%80=3&�=4&a=5&z=6");
+
+    assertThat(url.searchParams().sort().query())
+        .hasValue("a=2&a=5&z=1&z=6&%F0%9F%98%80=3&%EF%BF%BD=4");
+  }
+}
@@ -25,6 +25,7 @@ import com.tylerkindy.url.testdata.TestCase.Failure;
 import com.tylerkindy.url.testdata.TestCase.Success;
 import com.tylerkindy.url.testdata.TestCaseReader;
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
@@ -104,6 +105,126 @@ class UrlTest {
             });
   }
 
+  @Test
+  void itExposesComponentsOfTestData() {
+    TestCaseReader.testCases()
+        .filter(Success.class::isInstance)
+        .map(Success.class::cast)
+        .forEach(success -> {
+          UrlParseResult result = success
+              .base()
+              .map(base -> Url.parse(success.input(), Url.parseOrThrow(base)))
+              .orElseGet(() -> Url.parse(success.input()));
+          if (!(result instanceof UrlParseResult.Success s)) {
+            return;
+          }
+          Url url = s.url();
+
+          assertThat(url.scheme() + ":").as(success.name()).isEqualTo(success.protocol());
+          assertThat(url.username()).as(success.name()).isEqualTo(success.username());
+          assertThat(url.password()).as(success.name()).isEqualTo(success.password());
+          assertThat(url.host().map(Host::toString).orElse(""))
+              .as(success.name())
+              .isEqualTo(success.hostname());
+          assertThat(url.port().map(port -> Integer.toString(port)).orElse(""))
+              .as(success.name())
+              .isEqualTo(success.port());
+          assertThat(url.path().toString()).as(success.name()).isEqualTo(success.pathname());
+          assertThat(url.query().filter(not(String::isEmpty)).map(query -> "?" + query).orElse(""))
+              .as(success.name())
+              .isEqualTo(success.search());
+          assertThat(url.fragment().filter(not(String::isEmpty)).map(fragment -> "#" + fragment).orElse(""))
+              .as(success.name())
+              .isEqualTo(success.hash());
+        });
+  }
+
+  @Test
+  void itParsesCharSequenceSlicesLikeStrings() {
+    TestCaseReader.testCases()
+        .filter(testCase -> testCase.base().isEmpty())
+        .forEach(testCase -> {
+          String input = testCase.input();
+          CharBuffer slice = CharBuffer.wrap("<a href=\"" + input + "\">");
+          int start = "<a href=\"".length();
+
+          assertThat(Url.parse(slice, start, start + input.length()))
+              .as(testCase.name())
+              .isEqualTo(Url.parse(input));
+        });
+  }
+
+  @Test
+  void itChecksWhetherTestDataParses() {
+    TestCaseReader.testCasesWithParsedBase().forEach(testCase -> {
+      boolean canParse = testCase.parse(Url::canParse, Url::canParse);
+
+      assertThat(canParse)
+          .as(testCase.name())
+          .isEqualTo(testCase.parse() instanceof UrlParseResult.Success);
+    });
+  }
+
+  @Test
+  void itParsesJustTheHostOfTestData() {
+    TestCaseReader.testCasesWithParsedBase().forEach(testCase -> {
+      Optional<Host> host = testCase.parse(Url::parseHost, Url::parseHost);
+
+      Optional<Host> expected = testCase.parse() instanceof UrlParseResult.Success s ?
+          s.url().host() :
+          Optional.empty();
+      assertThat(host).as(testCase.name()).isEqualTo(expected);
+    });
+  }
+
+  @Test
+  void itParsesJustTheHostThroughACache() {
+    HostCache cache = HostCache.builder().setMaximumSize(16).build();
+
+    assertThat(Url.parseHost("https://EXAMPLE.com:8080/a?b#c", cache))
+        .isEqualTo(Url.parseHost("https://EXAMPLE.com:8080/a?b#c"))
+        .isEqualTo(Url.parseOrThrow("https://example.com/").host());
+    assertThat(Url.parseHost("https://0x7f.1/", cache))
+        .isEqualTo(Url.parseOrThrow("https://127.0.0.1/").host());
+  }
+
+  @Test
+  void itKeepsParsedIpAddressHosts() {
+    Url ipv4 = Url.parseOrThrow("https://0x7f.1/");
+    Url ipv6 = Url.parseOrThrow("https://[::1]/?q");
+
+    assertThat(ipv4.host()).isEqualTo(Url.parseHost("https://127.0.0.1/"));
+    assertThat(ipv4.host().get()).isSameAs(ipv4.host().get());
+    assertThat(ipv6.searchParams().set("a", "b").host()).isEqualTo(ipv6.host());
+  }
+
+  @Test
+  void itDecodesComponentsOnce() {
+    Url url = Url.parseOrThrow("https://us%20er@example.com/a%2Fb/c%C3%A9/d?q=%26+x#f%23");
+
+    assertThat(url.decodedUsername()).isEqualTo("us er");
+    assertThat(url.decodedPathSegments()).containsExactly("a/b", "cé", "d");
+    assertThat(url.decodedQuery()).hasValue("q=&+x");
+    assertThat(url.decodedFragment()).hasValue("f#");
+
+    assertThat(url.decodedPathSegments()).isSameAs(url.decodedPathSegments());
+    assertThat(url.decodedQuery()).isSameAs(url.decodedQuery());
+  }
+
+  @Test
+  void itDecodesComponentsWithoutPercentSignsAsIs() {
+    Url url = Url.parseOrThrow("https://example.com/a/b?c#d");
+
+    assertThat(url.decodedUsername()).isEmpty();
+    assertThat(url.decodedPathSegments()).isEqualTo(((UrlPath.NonOpaque) url.path()).segments());
+    assertThat(url.decodedQuery()).isEqualTo(url.query());
+    assertThat(url.decodedFragment()).isEqualTo(url.fragment());
+
+    Url opaque = Url.parseOrThrow("mailto:a%40b");
+    assertThat(opaque.decodedPathSegments()).containsExactly("a@b");
+    assertThat(opaque.decodedQuery()).isEmpty();
+  }
+
   @TestFactory
   Stream<DynamicTest> top100UrlsTests() {
     List<String> urlStrings;
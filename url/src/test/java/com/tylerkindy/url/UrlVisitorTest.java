@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tylerkindy.url.UrlParseResult.Success;
+import com.tylerkindy.url.testdata.TestCaseReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class UrlVisitorTest {
+  @Test
+  void itReportsComponentsInOrder() {
+    RecordingVisitor visitor = new RecordingVisitor();
+
+    assertThat(Url.parse("https://user:pa ss@EXAMPLE.com:8080/a/../b/c?q=1#frag", visitor)).isTrue();
+    assertThat(visitor.events).containsExactly(
+        "scheme https",
+        "username user",
+        "password pa%20ss",
+        "host Domain example.com",
+        "port 8080",
+        "segment b",
+        "segment c",
+        "query q=1",
+        "fragment frag"
+    );
+  }
+
+  @Test
+  void itReportsOpaquePaths() {
+    RecordingVisitor visitor = new RecordingVisitor();
+
+    assertThat(Url.parse("mailto:someone@example.com", visitor)).isTrue();
+    assertThat(visitor.events).containsExactly("scheme mailto", "opaque path someone@example.com");
+  }
+
+  @Test
+  void itReportsEverySegmentThroughOneReusedView() {
+    Set<CharSequence> views = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<String> segments = new ArrayList<>();
+    UrlVisitor visitor = new UrlVisitor() {
+      @Override
+      public void visitPathSegment(CharSequence segment) {
+        views.add(segment);
+        segments.add(segment.toString());
+      }
+    };
+
+    assertThat(Url.parse("e/../f/g", Url.parseOrThrow("https://example.com/x/y/z"), visitor)).isTrue();
+    assertThat(segments).containsExactly("x", "y", "f", "g");
+    assertThat(views).hasSize(1);
+  }
+
+  @Test
+  void itReportsNothingOnFailure() {
+    RecordingVisitor visitor = new RecordingVisitor();
+
+    assertThat(Url.parse("https://exa mple.com/", visitor)).isFalse();
+    assertThat(visitor.events).isEmpty();
+  }
+
+  @Test
+  void itSerializesTestDataLikeParse() {
+    TestCaseReader.testCasesWithParsedBase().forEach(testCase -> {
+      UrlParseResult expected = testCase.parse();
+      UrlSerializer serializer = new UrlSerializer();
+      boolean parsed = testCase.parse(
+          input -> Url.parse(input, serializer),
+          (input, base) -> Url.parse(input, base, serializer)
+      );
+
+      if (expected instanceof Success success) {
+        assertThat(parsed).as(testCase.name()).isTrue();
+        assertThat(new Url(serializer)).as(testCase.name()).isEqualTo(success.url());
+        assertThat(new Url(serializer).path()).as(testCase.name()).isEqualTo(success.url().path());
+      } else {
+        assertThat(parsed).as(testCase.name()).isFalse();
+      }
+    });
+  }
+
+  private static final class RecordingVisitor implements UrlVisitor {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void visitScheme(CharSequence scheme) {
+      events.add("scheme " + scheme);
+    }
+
+    @Override
+    public void visitUsername(CharSequence username) {
+      events.add("username " + username);
+    }
+
+    @Override
+    public void visitPassword(CharSequence password) {
+      events.add("password " + password);
+    }
+
+    @Override
+    public void visitHost(Host host) {
+      events.add("host " + host.getClass().getSimpleName() + " " + host);
+    }
+
+    @Override
+    public void visitPort(int port) {
+      events.add("port " + port);
+    }
+
+    @Override
+    public void visitPathSegment(CharSequence segment) {
+      events.add("segment " + segment);
+    }
+
+    @Override
+    public void visitOpaquePath(CharSequence path) {
+      events.add("opaque path " + path);
+    }
+
+    @Override
+    public void visitQuery(CharSequence query) {
+      events.add("query " + query);
+    }
+
+    @Override
+    public void visitFragment(CharSequence fragment) {
+      events.add("fragment " + fragment);
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tylerkindy.url.UrlParseResult.Success;
+import com.tylerkindy.url.testdata.TestCase;
+import com.tylerkindy.url.testdata.TestCaseReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class Utf8PointerTest {
+  @Test
+  void itDecodesMultiByteCodePoints() {
+    byte[] bytes = "aé€😀".getBytes(StandardCharsets.UTF_8);
+    Utf8Pointer p = Utf8Pointer.of(bytes, 0, bytes.length);
+
+    assertThat(p.codePoint()).isEqualTo('a');
+    p.increase();
+    assertThat(p.codePoint()).isEqualTo(0xE9);
+    p.increase();
+    assertThat(p.codePoint()).isEqualTo(0x20AC);
+    p.increase();
+    assertThat(p.codePoint()).isEqualTo(0x1F600);
+    p.increase();
+    assertThat(p.codePoint()).isEqualTo(Pointer.EOF);
+
+    p.decrease(2);
+    assertThat(p.codePoint()).isEqualTo(0x20AC);
+    p.decrease(3);
+    assertThat(p.codePoint()).isEqualTo(Pointer.NOWHERE);
+  }
+
+  @Test
+  void itLooksPastMultiByteCodePointsForTheRemaining() {
+    byte[] bytes = "é//".getBytes(StandardCharsets.UTF_8);
+    assertThat(Utf8Pointer.of(bytes, 0, bytes.length).doesRemainingStartWith("//")).isTrue();
+  }
+
+  @Test
+  void itAppendsRunsOfCopyableAsciiBytes() {
+    byte[] bytes = "abé".getBytes(StandardCharsets.UTF_8);
+    Utf8Pointer p = Utf8Pointer.of(bytes, 0, bytes.length);
+    StringBuilder output = new StringBuilder();
+
+    assertThat(p.appendRun(output, CharacterUtils.asciiCopyTable(PercentEncoder.FRAGMENT, ""))).isTrue();
+    assertThat(output.toString()).isEqualTo("ab");
+    assertThat(p.codePoint()).isEqualTo('b');
+  }
+
+  @Test
+  void itValidatesUtf8() {
+    assertThat(Utf8Pointer.of("hé😀".getBytes(StandardCharsets.UTF_8), 0, 7).isValidUtf8())
+        .isTrue();
+    assertThat(Utf8Pointer.of(new byte[] {(byte) 0xC0, (byte) 0xAF}, 0, 2).isValidUtf8()).isFalse();
+    assertThat(Utf8Pointer.of(new byte[] {(byte) 0xED, (byte) 0xA0, (byte) 0x80}, 0, 3).isValidUtf8())
+        .isFalse();
+    assertThat(Utf8Pointer.of(new byte[] {(byte) 0xE2, (byte) 0x82}, 0, 2).isValidUtf8()).isFalse();
+  }
+
+  @Test
+  void itParsesBytesLikeStrings() {
+    TestCaseReader.testCases()
+        .filter(testCase -> testCase.base().isEmpty())
+        .map(TestCase::input)
+        .forEach(input -> {
+          byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+          UrlParseResult expected = Url.parse(new String(bytes, StandardCharsets.UTF_8));
+
+          assertThat(Url.parse(bytes, 0, bytes.length)).as(input).isEqualTo(expected);
+        });
+  }
+
+  @Test
+  void itParsesASliceOfABuffer() {
+    ByteBuffer buffer = ByteBuffer.wrap("GET http://example.com/café HTTP/1.1".getBytes(StandardCharsets.UTF_8));
+    buffer.position(4).limit(buffer.limit() - 9);
+
+    assertThat(Url.parse(buffer))
+        .isEqualTo(new Success(Url.parseOrThrow("http://example.com/caf%C3%A9")));
+    assertThat(buffer.position()).isEqualTo(4);
+  }
+
+  @Test
+  void itParsesADirectBufferInPlace() {
+    byte[] bytes = "GET http://example.com/café HTTP/1.1".getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    buffer.position(4).limit(buffer.limit() - 9);
+
+    assertThat(Url.parse(buffer))
+        .isEqualTo(new Success(Url.parseOrThrow("http://example.com/caf%C3%A9")));
+    assertThat(buffer.position()).isEqualTo(4);
+    assertThat(buffer.limit()).isEqualTo(bytes.length - 9);
+  }
+
+  @Test
+  void itParsesDirectBuffersLikeStrings() {
+    TestCaseReader.testCases()
+        .filter(testCase -> testCase.base().isEmpty())
+        .map(TestCase::input)
+        .forEach(input -> {
+          byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+          ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+          assertThat(Url.parse(buffer)).as(input).isEqualTo(Url.parse(input));
+        });
+  }
+
+  @Test
+  void itFallsBackOnMalformedUtf8() {
+    byte[] bytes = {'h', 't', 't', 'p', ':', '/', '/', 'a', '/', (byte) 0xFF};
+
+    assertThat(Url.parse(bytes, 0, bytes.length))
+        .isEqualTo(new Success(Url.parseOrThrow("http://a/%EF%BF%BD")));
+  }
+}
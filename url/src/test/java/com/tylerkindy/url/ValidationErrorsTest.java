@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.tylerkindy.url.ParseOptions.Diagnostics;
+import com.tylerkindy.url.UrlParseResult.Failure;
+import com.tylerkindy.url.ValidationError.HostMissing;
+import com.tylerkindy.url.ValidationError.InvalidUrlUnit;
+import com.tylerkindy.url.ValidationError.MissingSchemeNonRelativeUrl;
+import com.tylerkindy.url.ValidationError.SpecialSchemeMissingFollowingSolidus;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ValidationErrorsTest {
+  @Test
+  void itReusesSingletons() {
+    ValidationErrors errors = new ValidationErrors(Diagnostics.COLLECT);
+    errors.add(new HostMissing());
+
+    assertThat(errors.get(0)).isSameAs(HostMissing.INSTANCE);
+    assertThat(errors).containsExactly(new HostMissing());
+  }
+
+  @Test
+  void itBuildsInvalidUrlUnitsFromCodePoints() {
+    ValidationErrors errors = new ValidationErrors(Diagnostics.COLLECT);
+    errors.addInvalidUrlUnit(' ');
+    errors.addInvalidUrlUnit(0x1F600);
+    errors.add(new InvalidUrlUnit("custom"));
+
+    assertThat(errors).containsExactly(
+        new InvalidUrlUnit(" "),
+        new InvalidUrlUnit("😀"),
+        new InvalidUrlUnit("custom")
+    );
+  }
+
+  @Test
+  void itAnswersContainsFromKinds() {
+    ValidationErrors errors = new ValidationErrors(Diagnostics.COLLECT);
+    errors.add(SpecialSchemeMissingFollowingSolidus.INSTANCE);
+
+    assertThat(errors).contains(new SpecialSchemeMissingFollowingSolidus());
+    assertThat(errors).doesNotContain(new MissingSchemeNonRelativeUrl());
+  }
+
+  @Test
+  void itRecordsOnlyTheFirstErrorWhenFailingFast() {
+    ValidationErrors errors = new ValidationErrors(Diagnostics.FAIL_FAST);
+    errors.addInvalidUrlUnit(' ');
+    errors.add(HostMissing.INSTANCE);
+
+    assertThat(errors).containsExactly(new InvalidUrlUnit(" "));
+    assertThat(errors.shouldStop()).isTrue();
+  }
+
+  @Test
+  void itRemembersDroppingErrors() {
+    ValidationErrors collected = new ValidationErrors(Diagnostics.COLLECT);
+    collected.add(HostMissing.INSTANCE);
+    assertThat(collected.isTruncated()).isFalse();
+
+    ValidationErrors failFast = new ValidationErrors(Diagnostics.FAIL_FAST);
+    failFast.add(HostMissing.INSTANCE);
+    assertThat(failFast.isTruncated()).isFalse();
+    failFast.addInvalidUrlUnit(' ');
+    assertThat(failFast.isTruncated()).isTrue();
+
+    failFast.clear();
+    assertThat(failFast.isTruncated()).isFalse();
+
+    ValidationErrors none = new ValidationErrors(Diagnostics.NONE);
+    none.add(HostMissing.INSTANCE);
+    assertThat(none).isEmpty();
+    assertThat(ValidationErrors.isTruncated(none.toList())).isTrue();
+  }
+
+  @Test
+  void itDropsEverythingReportedToTheSharedDiscardingList() {
+    ValidationErrors.DISCARDED.add(HostMissing.INSTANCE);
+    ValidationErrors.DISCARDED.addInvalidUrlUnit(' ');
+
+    assertThat(ValidationErrors.DISCARDED).isEmpty();
+    assertThat(ValidationErrors.DISCARDED.isTruncated()).isTrue();
+    assertThat(ValidationErrors.DISCARDED.isFrozen()).isFalse();
+  }
+
+  @Test
+  void itFreezesWhenHandedOut() {
+    ValidationErrors errors = new ValidationErrors(Diagnostics.COLLECT);
+    errors.add(HostMissing.INSTANCE);
+    List<ValidationError> list = errors.toList();
+
+    assertThatThrownBy(() -> list.add(HostMissing.INSTANCE))
+        .isInstanceOf(UnsupportedOperationException.class);
+    assertThat(new ValidationErrors(Diagnostics.COLLECT).toList()).isSameAs(List.of());
+  }
+
+  @Test
+  void itComparesFailuresByTheirErrors() {
+    assertThat(Url.parse("https://example.com:99999/"))
+        .isEqualTo(Url.parse("https://example.com:99999/"))
+        .isInstanceOfSatisfying(Failure.class, failure -> assertThat(failure.errors()).hasSize(1));
+  }
+}
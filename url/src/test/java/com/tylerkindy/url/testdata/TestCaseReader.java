@@ -21,7 +21,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.tylerkindy.url.Url;
+import com.tylerkindy.url.UrlParseResult;
 import java.io.IOException;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -46,4 +50,22 @@ public class TestCaseReader {
               return objectMapper.convertValue(o, TestCase.class);
             });
   }
+
+  /**
+   * @return the test cases with their bases parsed, leaving out those whose base doesn't parse
+   */
+  public static Stream<TestCaseWithBase> testCasesWithParsedBase() {
+    return testCases()
+        .map(testCase -> {
+          Optional<UrlParseResult> base = testCase.base().map(Url::parse);
+          if (base.isEmpty()) {
+            return new TestCaseWithBase(testCase, Optional.empty());
+          }
+          if (base.get() instanceof UrlParseResult.Success success) {
+            return new TestCaseWithBase(testCase, Optional.of(success.url()));
+          }
+          return null;
+        })
+        .filter(Objects::nonNull);
+  }
 }
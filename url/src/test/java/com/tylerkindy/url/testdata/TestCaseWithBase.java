@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 Tyler Kindy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.tylerkindy.url.testdata;
+
+import com.tylerkindy.url.Url;
+import com.tylerkindy.url.UrlParseResult;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A test case with its base, if it has one, already parsed.
+ */
+public record TestCaseWithBase(TestCase testCase, Optional<Url> base) {
+  public String input() {
+    return testCase.input();
+  }
+
+  public String name() {
+    return testCase.name();
+  }
+
+  /**
+   * @return the result of {@link Url#parse} on the input, against the base if there is one
+   */
+  public UrlParseResult parse() {
+    return parse(Url::parse, Url::parse);
+  }
+
+  /**
+   * Runs whichever of the two functions applies to the input: the first if there's no base, or
+   * the second with the base if there is.
+   */
+  public <T> T parse(Function<String, T> withoutBase, BiFunction<String, Url, T> withBase) {
+    return base
+        .map(b -> withBase.apply(testCase.input(), b))
+        .orElseGet(() -> withoutBase.apply(testCase.input()));
+  }
+}